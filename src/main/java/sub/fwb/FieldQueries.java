@@ -0,0 +1,37 @@
+package sub.fwb;
+
+import java.io.IOException;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.solr.parser.ParseException;
+
+/**
+ * What LuceneQueryBuilder needs from the schema and the index: the queries for single fields, analyzed like in
+ * the field type. A ParseException means that the schema does not have the field.
+ */
+interface FieldQueries {
+
+	void checkField(String field) throws ParseException;
+
+	/**
+	 * @return null if the analyzer removes everything
+	 */
+	Query termQuery(String field, String text) throws ParseException;
+
+	Query phraseQuery(String field, String text) throws ParseException;
+
+	Query complexPhraseQuery(String field, String escapedPhrase) throws ParseException;
+
+	/**
+	 * @return the text analyzed like a wildcard or fuzzy term, as one term
+	 */
+	BytesRef multiTerm(String field, String text) throws ParseException;
+
+	/**
+	 * @return all terms of the field in the index, in the order of the term dictionary
+	 */
+	BytesRefIterator terms(String field) throws IOException;
+
+}
@@ -0,0 +1,42 @@
+package sub.fwb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+
+/**
+ * Named counters of a filter factory. The filters count locally and add their numbers here when a token stream
+ * ends, so that the shared counters are not touched for every token.
+ */
+public class FilterStatistics {
+
+	private final Map<String, AtomicLong> counters = new LinkedHashMap<>();
+
+	public FilterStatistics(String... counterNames) {
+		for (String name : counterNames) {
+			counters.put(name, new AtomicLong());
+		}
+	}
+
+	public void add(String counterName, long delta) {
+		if (delta != 0) {
+			counters.get(counterName).addAndGet(delta);
+		}
+	}
+
+	public long get(String counterName) {
+		return counters.get(counterName).get();
+	}
+
+	public NamedList<Object> toNamedList() {
+		NamedList<Object> list = new SimpleOrderedMap<>();
+		for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+			list.add(entry.getKey(), entry.getValue().get());
+		}
+		return list;
+	}
+
+}
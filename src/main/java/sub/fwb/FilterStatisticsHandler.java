@@ -0,0 +1,50 @@
+package sub.fwb;
+
+import java.util.Map;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+import org.apache.solr.analysis.TokenizerChain;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.FieldType;
+
+/**
+ * Shows the counters of all filter factories in the schema that provide statistics, e. g.:
+ * 
+ * <requestHandler name="/admin/fwbstats" class="sub.fwb.FilterStatisticsHandler" />
+ */
+public class FilterStatisticsHandler extends RequestHandlerBase {
+
+	@Override
+	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
+		NamedList<Object> allStatistics = new SimpleOrderedMap<>();
+		for (Map.Entry<String, FieldType> entry : req.getSchema().getFieldTypes().entrySet()) {
+			FieldType fieldType = entry.getValue();
+			addStatistics(allStatistics, entry.getKey() + "/index", fieldType.getIndexAnalyzer());
+			addStatistics(allStatistics, entry.getKey() + "/query", fieldType.getQueryAnalyzer());
+		}
+		rsp.add("filterStatistics", allStatistics);
+	}
+
+	private void addStatistics(NamedList<Object> allStatistics, String analyzerName, Analyzer analyzer) {
+		if (!(analyzer instanceof TokenizerChain)) {
+			return;
+		}
+		for (TokenFilterFactory factory : ((TokenizerChain) analyzer).getTokenFilterFactories()) {
+			if (factory instanceof StatisticsProvider) {
+				FilterStatistics statistics = ((StatisticsProvider) factory).getStatistics();
+				allStatistics.add(analyzerName + "/" + factory.getClass().getSimpleName(), statistics.toNamedList());
+			}
+		}
+	}
+
+	@Override
+	public String getDescription() {
+		return "Statistics of the FWB filter factories";
+	}
+
+}
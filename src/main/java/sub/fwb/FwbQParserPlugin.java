@@ -0,0 +1,78 @@
+package sub.fwb;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.parser.ParseException;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SyntaxError;
+
+/**
+ * Parses the FWB query syntax directly into Lucene queries, without the detour over a query string for edismax.
+ * The search fields are taken from the qf parameter, e. g. fq={!fwb qf='lemma^1000 zitat^50'}imbis.
+ */
+public class FwbQParserPlugin extends QParserPlugin {
+
+	static final int DEFAULT_MAX_EXPANDED_TERMS = 10000;
+
+	private ParametersModifiers modifiers = new ParametersModifiers();
+	// see SuffixIndexListener
+	private String suffixIndexCache;
+	private int maxExpandedTerms = DEFAULT_MAX_EXPANDED_TERMS;
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void init(NamedList args) {
+		super.init(args);
+		modifiers = new ParametersModifiers((String) args.get(ParametersModifiers.INFIX_FIELD_ENDING),
+				(String) args.get(ParametersModifiers.REVERSED_FIELD_ENDING));
+		suffixIndexCache = (String) args.get("suffixIndexCache");
+		Object max = args.get("maxExpandedTerms");
+		if (max != null) {
+			maxExpandedTerms = Integer.parseInt(max.toString());
+		}
+	}
+
+	@Override
+	public QParser createParser(String qstr, SolrParams localParams, SolrParams params, SolrQueryRequest req) {
+		return new QParser(qstr, localParams, params, req) {
+			@Override
+			public Query parse() throws SyntaxError {
+				String queryFieldsWithBoosts = SolrParams.wrapDefaults(localParams, params).get("qf");
+				if (queryFieldsWithBoosts == null || queryFieldsWithBoosts.trim().isEmpty()) {
+					throw new SyntaxError("Parameter qf fehlt");
+				}
+				checkBoosts(queryFieldsWithBoosts);
+				try {
+					ParametersModifier modifier = modifiers.get(queryFieldsWithBoosts, null);
+					SuffixIndexes suffixIndexes = SuffixIndexes.of(req, suffixIndexCache);
+					return new LuceneQueryBuilder(this, modifier.parse(qstr), suffixIndexes, maxExpandedTerms)
+							.build();
+				} catch (ParseException e) {
+					throw new SyntaxError(e.getMessage(), e);
+				}
+			}
+		};
+	}
+
+	// every field needs a boost, e. g. lemma^1000, like in the search handlers
+	static void checkBoosts(String queryFieldsWithBoosts) throws SyntaxError {
+		for (String fieldWithBoost : queryFieldsWithBoosts.trim().split("\\s+")) {
+			String[] fieldAndBoost = fieldWithBoost.split("\\^");
+			boolean valid = fieldAndBoost.length == 2 && !fieldAndBoost[0].isEmpty();
+			if (valid) {
+				try {
+					Float.parseFloat(fieldAndBoost[1]);
+				} catch (NumberFormatException e) {
+					valid = false;
+				}
+			}
+			if (!valid) {
+				throw new SyntaxError("Parameter qf braucht Feld^Gewicht: " + fieldWithBoost);
+			}
+		}
+	}
+
+}
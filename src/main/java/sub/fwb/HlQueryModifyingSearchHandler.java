@@ -1,5 +1,8 @@
 package sub.fwb;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.util.NamedList;
 import org.apache.solr.common.util.SimpleOrderedMap;
@@ -11,24 +14,46 @@ import sub.fwb.ParametersModifyingSearchHandler.ModifiedParameters;
 
 public class HlQueryModifyingSearchHandler extends SearchHandler {
 
+	private String infixFieldEnding;
+	private String reversedFieldEnding;
+	private ParametersModifiers modifiers = new ParametersModifiers();
+	private RewriteCache cache = new RewriteCache(null);
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void init(NamedList args) {
+		super.init(args);
+		cache = new RewriteCache((String) args.get(RewriteCache.PARAMETER));
+		infixFieldEnding = (String) args.get(ParametersModifiers.INFIX_FIELD_ENDING);
+		reversedFieldEnding = (String) args.get(ParametersModifiers.REVERSED_FIELD_ENDING);
+		modifiers = new ParametersModifiers(infixFieldEnding, reversedFieldEnding);
+	}
+
 	@Override
 	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
 
 		String oldHlQuery = req.getParams().get("hl.q");
 		String queryFieldsWithBoosts = req.getParams().get("qf");
 		String hlFields = req.getParams().get("hl.fl");
-		ParametersModifier modifier = new ParametersModifier(queryFieldsWithBoosts, hlFields);
-		ModifiedParameters modified = modifier.changeParamsForQuery(oldHlQuery);
-
-		String newHlQuery = modified.q;
-		String newHlFields = modified.hlFl;
-		String newQueryFields = modified.qf;
-
 		String[] filterQueries = req.getParams().getParams("fq");
+		String hlFilterQueries = null;
 		if (filterQueries != null && filterQueries.length > 0) {
-			newHlQuery = rewriteHlQuery(filterQueries);
+			hlFilterQueries = rewriteHlQuery(filterQueries);
+		}
+
+		List<String> key = Arrays.asList("hl.q", oldHlQuery, queryFieldsWithBoosts, hlFields, infixFieldEnding,
+				reversedFieldEnding);
+		ModifiedParameters modified = cache.get(req, key);
+		if (modified == null) {
+			ParametersModifier modifier = modifiers.get(queryFieldsWithBoosts, hlFields);
+			modified = modifier.changeParamsForQuery(oldHlQuery);
+			cache.put(req, key, modified);
 		}
 
+		String newHlQuery = hlFilterQueries != null ? hlFilterQueries : modified.q;
+		String newHlFields = modified.hlFl;
+		String newQueryFields = modified.qf;
+
 		ModifiableSolrParams newParams = new ModifiableSolrParams(req.getParams());
 		newParams.set("hl.q", newHlQuery);
 		newParams.set("qf", newQueryFields);
@@ -0,0 +1,106 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.store.InputStreamDataInput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.fst.ByteSequenceOutputs;
+import org.apache.lucene.util.fst.FST;
+
+/**
+ * Precomputed variants of known lemmas, stored in an FST that maps each lemma (as code points) to its distinct
+ * variants. The variants are UTF-8 encoded and separated by zero bytes. The dictionary is created with
+ * LemmaDictionaryBuilder.
+ */
+public final class LemmaDictionary {
+
+	public static final String HITS = "dictionaryHits";
+	public static final String MISSES = "dictionaryMisses";
+
+	static final byte SEPARATOR = 0;
+
+	// null if the dictionary is empty
+	private final FST<BytesRef> fst;
+
+	LemmaDictionary(FST<BytesRef> fst) {
+		this.fst = fst;
+	}
+
+	public static LemmaDictionary load(InputStream in) throws IOException {
+		int hasFst = in.read();
+		// an empty file is an empty dictionary, too
+		if (hasFst <= 0) {
+			return new LemmaDictionary(null);
+		}
+		return new LemmaDictionary(new FST<>(new InputStreamDataInput(in), ByteSequenceOutputs.getSingleton()));
+	}
+
+	public void save(OutputStream out) throws IOException {
+		// the first byte tells if there is an FST at all
+		out.write(fst == null ? 0 : 1);
+		if (fst != null) {
+			fst.save(new OutputStreamDataOutput(out));
+		}
+		out.flush();
+	}
+
+	/**
+	 * A reader keeps the objects needed for lookups, so it should be created once per filter. Readers are not
+	 * thread-safe, the dictionary itself is.
+	 */
+	public Reader newReader() {
+		return new Reader();
+	}
+
+	public final class Reader {
+		private final FST.Arc<BytesRef> arc = new FST.Arc<>();
+		private final FST.BytesReader bytesReader = fst == null ? null : fst.getBytesReader();
+		private final List<char[]> variants = new ArrayList<>();
+
+		private Reader() {
+		}
+
+		/**
+		 * @return the variants of the lemma, or null if it is unknown
+		 */
+		public char[][] lookup(CharSequence lemma) throws IOException {
+			if (fst == null) {
+				return null;
+			}
+			fst.getFirstArc(arc);
+			BytesRef output = fst.outputs.getNoOutput();
+			for (int i = 0; i < lemma.length();) {
+				int codePoint = Character.codePointAt(lemma, i);
+				if (fst.findTargetArc(codePoint, arc, arc, bytesReader) == null) {
+					return null;
+				}
+				output = fst.outputs.add(output, arc.output);
+				i += Character.charCount(codePoint);
+			}
+			if (!arc.isFinal()) {
+				return null;
+			}
+			return decode(fst.outputs.add(output, arc.nextFinalOutput));
+		}
+
+		private char[][] decode(BytesRef output) {
+			variants.clear();
+			int start = output.offset;
+			int end = output.offset + output.length;
+			for (int i = start; i <= end; i++) {
+				if (i == end || output.bytes[i] == SEPARATOR) {
+					variants.add(new String(output.bytes, start, i - start, StandardCharsets.UTF_8).toCharArray());
+					start = i + 1;
+				}
+			}
+			return variants.toArray(new char[variants.size()][]);
+		}
+	}
+
+}
@@ -0,0 +1,126 @@
+package sub.fwb;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.ByteSequenceOutputs;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * Creates a LemmaDictionary from a text file with one lemma per line:
+ * 
+ * java -cp fwb-solr-mods.jar:lucene-core.jar sub.fwb.LemmaDictionaryBuilder lemmas.txt lemma_variants.fst [maxVariants]
+ * 
+ * The lemmas are prepared and normalized in the same way as in LemmaNormalizingFilter. Lemmas with more than
+ * maxVariants variants are left out, so that the filter computes them with its own maxVariants.
+ */
+public class LemmaDictionaryBuilder {
+
+	private final LemmaNormalizer normalizer;
+	// the FST needs its inputs sorted by code points
+	private final Map<IntsRef, BytesRef> entries = new TreeMap<>();
+	private final IntsRefBuilder scratch = new IntsRefBuilder();
+
+	public LemmaDictionaryBuilder() {
+		this(LemmaNormalizer.DEFAULT_MAX_VARIANTS);
+	}
+
+	public LemmaDictionaryBuilder(int maxVariants) {
+		normalizer = new LemmaNormalizer(maxVariants);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2 && args.length != 3) {
+			System.err.println("Usage: LemmaDictionaryBuilder <lemmas file> <dictionary file> [maxVariants]");
+			System.exit(1);
+		}
+		LemmaDictionaryBuilder builder = args.length == 3 ? new LemmaDictionaryBuilder(Integer.parseInt(args[2]))
+				: new LemmaDictionaryBuilder();
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				builder.addLemma(line.trim());
+			}
+		}
+		try (OutputStream out = new FileOutputStream(args[1])) {
+			builder.build().save(out);
+		}
+		System.out.println(builder.entries.size() + " lemmas written to " + args[1]);
+	}
+
+	public void addLemma(String lemma) {
+		if (lemma.isEmpty()) {
+			return;
+		}
+		if (LemmaNormalizingFilter.hasUnnecessaryLeftParen(lemma)) {
+			lemma = lemma.substring(1);
+		} else if (LemmaNormalizingFilter.hasUnnecessaryRightParen(lemma)) {
+			lemma = lemma.substring(0, lemma.length() - 1);
+		}
+		IntsRef key = Util.toUTF32(lemma, scratch);
+		if (entries.containsKey(key)) {
+			return;
+		}
+
+		Set<String> variants = new LinkedHashSet<>(normalizer.createMappings(lemma));
+		if (normalizer.isCapped()) {
+			// a filter with a higher maxVariants would get too few variants from the dictionary
+			return;
+		}
+		StringBuilder joined = new StringBuilder();
+		for (String variant : variants) {
+			if (!canEncode(variant)) {
+				// the filter will compute the variants of such a lemma
+				return;
+			}
+			if (joined.length() > 0) {
+				joined.append((char) LemmaDictionary.SEPARATOR);
+			}
+			joined.append(variant);
+		}
+		entries.put(IntsRef.deepCopyOf(key), new BytesRef(joined.toString().getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Zero chars are the separators, and unpaired surrogates would be lost in UTF-8.
+	 */
+	private static boolean canEncode(String variant) {
+		for (int i = 0; i < variant.length(); i++) {
+			char c = variant.charAt(i);
+			if (c == LemmaDictionary.SEPARATOR) {
+				return false;
+			}
+			if (Character.isHighSurrogate(c) && i + 1 < variant.length()
+					&& Character.isLowSurrogate(variant.charAt(i + 1))) {
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public LemmaDictionary build() throws IOException {
+		Builder<BytesRef> fstBuilder = new Builder<>(FST.INPUT_TYPE.BYTE4, ByteSequenceOutputs.getSingleton());
+		for (Map.Entry<IntsRef, BytesRef> entry : entries.entrySet()) {
+			fstBuilder.add(entry.getKey(), entry.getValue());
+		}
+		return new LemmaDictionary(fstBuilder.finish());
+	}
+
+}
@@ -1,106 +1,196 @@
 package sub.fwb;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * Creates the alternative spellings of a lemma. The lemma is scanned once for each kind of parentheses, and the
+ * variants are then assembled from the literal parts and the optional groups.
+ *
+ * The results are the same as with the former regular expressions: a group reaches from an opening paren to the
+ * next closing one, and empty literal parts at the end are dropped together with the groups behind them, just like
+ * String.split() did.
+ *
+ * Since every group doubles the number of variants, there is a limit for them, the original lemma included. Without
+ * it, a lemma with some dozens of groups would never be finished.
+ */
 public class LemmaNormalizer {
 
-	private List<String> mappedWords = new ArrayList<String>();
+	public static final int DEFAULT_MAX_VARIANTS = 1024;
 
-	public List<String> createMappings(String currentTerm) {
+	private final int maxVariants;
+	private boolean capped = false;
+	private List<String> mappedWords;
+	private final StringBuilder variant = new StringBuilder();
+	// positions of the opening and closing parens of each group
+	private int[] groupStarts = new int[4];
+	private int[] groupEnds = new int[4];
+	private int groupsCount = 0;
+
+	public LemmaNormalizer() {
+		this(DEFAULT_MAX_VARIANTS);
+	}
+
+	public LemmaNormalizer(int maxVariants) {
+		this.maxVariants = maxVariants;
+	}
 
-		mappedWords.add(currentTerm);
-		currentTerm = cleanFromOutsideParens(currentTerm, "(", ")");
-		currentTerm = cleanFromOutsideParens(currentTerm, "[", "]");
-		boolean containsPipe = currentTerm.contains("|");
-		boolean containsParentheses = currentTerm.contains("(") && currentTerm.contains(")");
+	public List<String> createMappings(String currentTerm) {
+		mappedWords = new ArrayList<String>();
+		capped = false;
+
+		addVariant(currentTerm);
+		currentTerm = cleanFromOutsideParens(currentTerm, '(', ')');
+		currentTerm = cleanFromOutsideParens(currentTerm, '[', ']');
+		boolean containsPipe = currentTerm.indexOf('|') != -1;
+		boolean containsParentheses = currentTerm.indexOf('(') != -1 && currentTerm.indexOf(')') != -1;
 		if (containsPipe) {
-			currentTerm = currentTerm.replaceAll("\\|", "");
+			currentTerm = removeChars(currentTerm, '|', '|');
 		}
 		if (containsPipe && !containsParentheses) {
-			mappedWords.add(currentTerm);
+			addVariant(currentTerm);
 		}
 		if (containsParentheses) {
-			extendByParentheses(currentTerm, "\\((.*?)\\)");
+			extendByParentheses(currentTerm, '(', ')');
 		}
-		boolean containsBrackets = currentTerm.contains("[") && currentTerm.contains("]");
+		boolean containsBrackets = currentTerm.indexOf('[') != -1 && currentTerm.indexOf(']') != -1;
 		if (containsBrackets) {
-			extendByParentheses(currentTerm, "\\[(.*?)\\]");
+			extendByParentheses(currentTerm, '[', ']');
 		}
-		boolean containsLittleParens = currentTerm.contains("⁽") && currentTerm.contains("⁾");
+		boolean containsLittleParens = currentTerm.indexOf('⁽') != -1 && currentTerm.indexOf('⁾') != -1;
 		if (containsLittleParens) {
-			currentTerm = currentTerm.replaceAll("⁽", "").replaceAll("⁾", "");
-			mappedWords.add(currentTerm);
+			currentTerm = removeChars(currentTerm, '⁽', '⁾');
+			addVariant(currentTerm);
 		}
-		
+
 		return mappedWords;
 	}
 
-	private String cleanFromOutsideParens(String term, String leftP, String rightP) {
-		if (term.startsWith(leftP) && term.endsWith(rightP)) {
-			term = term.substring(1, term.length() - 1);
-			mappedWords.add(term);
-		}
-		return term;
+	/**
+	 * @return true if variants were left out in the last call of createMappings()
+	 */
+	public boolean isCapped() {
+		return capped;
 	}
 
-	private void extendByParentheses(String currentTerm, String parensRegex) {
-
-		mappedWords.add(currentTerm.replaceAll(parensRegex, ""));
-
-		String[] termParts = currentTerm.split(parensRegex);
-
-		List<String> parensParts = extractUsingRegex(parensRegex, currentTerm);
-
-		for (Set<Integer> combination : generateAllCombinations(parensParts.size())) {
-			addToMappedWords(combination, parensParts, termParts);
+	private boolean addVariant(String word) {
+		if (mappedWords.size() >= maxVariants) {
+			capped = true;
+			return false;
 		}
+		mappedWords.add(word);
+		return true;
+	}
 
+	private String cleanFromOutsideParens(String term, char leftP, char rightP) {
+		int length = term.length();
+		if (length >= 2 && term.charAt(0) == leftP && term.charAt(length - 1) == rightP) {
+			term = term.substring(1, length - 1);
+			addVariant(term);
+		}
+		return term;
 	}
 
-	private void addToMappedWords(Set<Integer> combination, List<String> parensParts, String[] termParts) {
-		String toBeAdded = "";
-		for (int i = 0; i < termParts.length; i++) {
-			toBeAdded += termParts[i];
-			if (combination.contains(i)) {
-				toBeAdded += parensParts.get(i);
+	private String removeChars(String term, char first, char second) {
+		variant.setLength(0);
+		for (int i = 0; i < term.length(); i++) {
+			char c = term.charAt(i);
+			if (c != first && c != second) {
+				variant.append(c);
 			}
 		}
-		mappedWords.add(toBeAdded);
+		return variant.toString();
 	}
 
-	private List<String> extractUsingRegex(String regex, String s) {
-		List<String> results = new ArrayList<String>();
-		Pattern pattern = Pattern.compile(regex);
-		Matcher matcher = pattern.matcher(s);
-		while (matcher.find()) {
-			results.add(matcher.group(1));
+	private void extendByParentheses(String currentTerm, char leftP, char rightP) {
+		findGroups(currentTerm, leftP, rightP);
+
+		// the term without all groups
+		variant.setLength(0);
+		int pos = 0;
+		for (int g = 0; g < groupsCount; g++) {
+			variant.append(currentTerm, pos, groupStarts[g]);
+			pos = groupEnds[g] + 1;
+		}
+		variant.append(currentTerm, pos, currentTerm.length());
+		if (!addVariant(variant.toString())) {
+			return;
 		}
 
-		if (results.isEmpty()) {
-			results.add("");
+		int partsCount = groupsCount + 1;
+		if (groupsCount > 0) {
+			while (partsCount > 0 && partStart(partsCount - 1) == partEnd(partsCount - 1, currentTerm)) {
+				partsCount--;
+			}
+		}
+		// without any groups, there is still one empty optional part
+		int optionalsCount = Math.max(groupsCount, 1);
+
+		// the same order as adding each group to all previous combinations
+		int remaining = maxVariants - mappedWords.size();
+		long combinationsCount = optionalsCount < 31 ? 1L << optionalsCount : Long.MAX_VALUE;
+		if (combinationsCount - 1 > remaining) {
+			// the later groups could never be part of a variant
+			combinationsCount = remaining + 1L;
+			capped = true;
+		}
+		for (long combination = 1; combination < combinationsCount; combination++) {
+			variant.setLength(0);
+			for (int i = 0; i < partsCount; i++) {
+				variant.append(currentTerm, partStart(i), partEnd(i, currentTerm));
+				if (i < groupsCount && i < 31 && (combination & (1L << i)) != 0) {
+					variant.append(currentTerm, groupStarts[i] + 1, groupEnds[i]);
+				}
+			}
+			if (!addVariant(variant.toString())) {
+				return;
+			}
 		}
-		return results;
 	}
 
-	private List<Set<Integer>> generateAllCombinations(int numberOfParentheses) {
-		List<Set<Integer>> results = new ArrayList<>();
-		for (int i = 0; i < numberOfParentheses; i++) {
-			List<Set<Integer>> resultsForI = new ArrayList<>();
-			Set<Integer> currentCombs = new HashSet<>();
-			currentCombs.add(i);
-			resultsForI.add(currentCombs);
-			for (Set<Integer> doneSet : results) {
-				Set<Integer> temp = new HashSet<>(doneSet);
-				temp.add(i);
-				resultsForI.add(temp);
+	private int partStart(int part) {
+		return part == 0 ? 0 : groupEnds[part - 1] + 1;
+	}
+
+	private int partEnd(int part, String term) {
+		return part == groupsCount ? term.length() : groupStarts[part];
+	}
+
+	/**
+	 * A group reaches from an opening paren to the next closing one, it can contain further opening parens. Like
+	 * the dot in a regular expression, it cannot contain line terminators.
+	 */
+	private void findGroups(String term, char leftP, char rightP) {
+		groupsCount = 0;
+		int length = term.length();
+		int i = 0;
+		while (i < length) {
+			if (term.charAt(i) != leftP) {
+				i++;
+				continue;
+			}
+			int end = i + 1;
+			while (end < length && term.charAt(end) != rightP && !isLineTerminator(term.charAt(end))) {
+				end++;
+			}
+			if (end == length || term.charAt(end) != rightP) {
+				i++;
+				continue;
 			}
-			results.addAll(resultsForI);
+			if (groupsCount == groupStarts.length) {
+				groupStarts = Arrays.copyOf(groupStarts, groupsCount * 2);
+				groupEnds = Arrays.copyOf(groupEnds, groupsCount * 2);
+			}
+			groupStarts[groupsCount] = i;
+			groupEnds[groupsCount] = end;
+			groupsCount++;
+			i = end + 1;
 		}
-		return results;
 	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
 }
@@ -1,17 +1,20 @@
 package sub.fwb;
 
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Queue;
 
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
 
 public final class LemmaNormalizingFilter extends TokenFilter {
+	public static final String CAPPED = "cappedTokens";
+
+	private static final char[][] NO_TERMS = new char[0][];
 
 	private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
 	private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
@@ -20,26 +23,59 @@ public final class LemmaNormalizingFilter extends TokenFilter {
 	private int startOffset = 0;
 	private int endOffset = 0;
 	private int posIncr = 0;
-	private Queue<String> terms;
+	private char[][] terms = NO_TERMS;
+	private int nextTerm = 0;
+
+	private final LemmaNormalizer normalizer;
+	private final int maxVariants;
+	private final LemmaDictionary.Reader dictionaryReader;
+	private long dictionaryHits = 0;
+	private long dictionaryMisses = 0;
+	private final VariantCache cache;
+	private final VariantCache.Key cacheKey = new VariantCache.Key();
+	private final FilterStatistics statistics;
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+	private long capped = 0;
+	private long duplicates = 0;
+	private final ReusableTermSet distinctTerms = new ReusableTermSet();
+	private char[] wordChars = new char[32];
+
+	public LemmaNormalizingFilter(TokenStream input, VariantCache cache, FilterStatistics statistics) {
+		this(input, LemmaNormalizer.DEFAULT_MAX_VARIANTS, cache, statistics);
+	}
+
+	public LemmaNormalizingFilter(TokenStream input, int maxVariants, VariantCache cache,
+			FilterStatistics statistics) {
+		this(input, maxVariants, null, cache, statistics);
+	}
 
-	public LemmaNormalizingFilter(TokenStream input) {
+	/**
+	 * Lemmas found in the dictionary are not normalized again, the others are.
+	 */
+	public LemmaNormalizingFilter(TokenStream input, int maxVariants, LemmaDictionary dictionary, VariantCache cache,
+			FilterStatistics statistics) {
 		super(input);
+		normalizer = new LemmaNormalizer(maxVariants);
+		this.maxVariants = maxVariants;
+		dictionaryReader = dictionary == null ? null : dictionary.newReader();
 		finished = false;
 		startOffset = 0;
 		endOffset = 0;
 		posIncr = 1;
-		this.terms = new LinkedList<String>();
-
+		this.cache = cache;
+		this.statistics = statistics;
 	}
 
 	
 	@Override
 	public boolean incrementToken() throws IOException {
 		while (!finished) {
-			while (terms.size() > 0) {
-				String buffer = terms.poll();
+			while (nextTerm < terms.length) {
+				char[] buffer = terms[nextTerm];
+				nextTerm++;
 
-				termAttr.copyBuffer(buffer.toCharArray(), 0, buffer.length());
+				termAttr.copyBuffer(buffer, 0, buffer.length);
 				offsetAttr.setOffset(startOffset, endOffset);
 				
 				int currentIncr = posIncrAttr.getPositionIncrement();
@@ -65,12 +101,48 @@ public final class LemmaNormalizingFilter extends TokenFilter {
 					endOffset--;
 				}
 				posIncr = 1;
+				nextTerm = 0;
+
+				if (cache != null) {
+					terms = cache.get(cacheKey.set(currentTerm));
+					if (terms != null) {
+						cacheHits++;
+						continue;
+					}
+					cacheMisses++;
+				}
+
+				if (dictionaryReader != null) {
+					terms = dictionaryReader.lookup(currentTerm);
+					if (terms != null) {
+						dictionaryHits++;
+						if (terms.length > maxVariants) {
+							terms = Arrays.copyOf(terms, maxVariants);
+							capped++;
+						}
+						continue;
+					}
+					dictionaryMisses++;
+				}
 
-				LemmaNormalizer normalizer = new LemmaNormalizer();
 				List<String> mappedWords = normalizer.createMappings(currentTerm);
+				if (normalizer.isCapped()) {
+					capped++;
+				}
 
-				for (String mappedWord : mappedWords) {
-					terms.add(mappedWord);
+				// the normalizer often creates the same variant more than once
+				distinctTerms.clear();
+				for (String word : mappedWords) {
+					if (word.length() > wordChars.length) {
+						wordChars = ArrayUtil.grow(wordChars, word.length());
+					}
+					word.getChars(0, word.length(), wordChars, 0);
+					distinctTerms.add(wordChars, 0, word.length());
+				}
+				duplicates += mappedWords.size() - distinctTerms.size();
+				terms = distinctTerms.toArrays();
+				if (cache != null) {
+					cache.put(cacheKey, terms);
 				}
 			} else {
 				finished = true;
@@ -79,23 +151,41 @@ public final class LemmaNormalizingFilter extends TokenFilter {
 		return false;
 	}
 
-	private boolean hasUnnecessaryLeftParen(String term) {
+	static boolean hasUnnecessaryLeftParen(String term) {
 		boolean hasRoundParen = term.startsWith("(") && !term.contains(")");
 		boolean hasBracket = term.startsWith("[") && !term.contains("]");
 		return hasRoundParen || hasBracket;
 	}
 
-	private boolean hasUnnecessaryRightParen(String term) {
+	static boolean hasUnnecessaryRightParen(String term) {
 		boolean hasRoundParen = !term.contains("(") && term.endsWith(")");
 		boolean hasBracket = !term.contains("[") && term.endsWith("]");
 		return hasRoundParen || hasBracket;
 	}
 
+	@Override
+	public void end() throws IOException {
+		super.end();
+		statistics.add(VariantCache.HITS, cacheHits);
+		statistics.add(VariantCache.MISSES, cacheMisses);
+		statistics.add(CAPPED, capped);
+		statistics.add(UmlautFilter.DUPLICATES, duplicates);
+		statistics.add(LemmaDictionary.HITS, dictionaryHits);
+		statistics.add(LemmaDictionary.MISSES, dictionaryMisses);
+		dictionaryHits = 0;
+		dictionaryMisses = 0;
+		cacheHits = 0;
+		cacheMisses = 0;
+		capped = 0;
+		duplicates = 0;
+	}
+
 	@Override
 	public void reset() throws IOException {
 		super.reset();
 		finished = false;
-		terms.clear();
+		terms = NO_TERMS;
+		nextTerm = 0;
 		startOffset = 0;
 		endOffset = 0;
 		posIncr = 1;
@@ -1,19 +1,55 @@
 package sub.fwb;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Map;
 
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.analysis.util.ResourceLoaderAware;
 import org.apache.lucene.analysis.util.TokenFilterFactory;
 
-public class LemmaNormalizingFilterFactory extends TokenFilterFactory {
+public class LemmaNormalizingFilterFactory extends TokenFilterFactory
+		implements ResourceLoaderAware, StatisticsProvider {
+
+	private int maxVariants;
+	private String dictionaryFile;
+	private LemmaDictionary dictionary;
+	private VariantCache cache;
+	private final FilterStatistics statistics = new FilterStatistics(LemmaNormalizingFilter.CAPPED,
+			UmlautFilter.DUPLICATES, LemmaDictionary.HITS, LemmaDictionary.MISSES, VariantCache.HITS,
+			VariantCache.MISSES, VariantCache.EVICTIONS);
 
 	public LemmaNormalizingFilterFactory(Map<String, String> args) {
 		super(args);
+		maxVariants = getInt(args, "maxVariants", LemmaNormalizer.DEFAULT_MAX_VARIANTS);
+		if (maxVariants < 1) {
+			throw new IllegalArgumentException("maxVariants must be at least 1: " + maxVariants);
+		}
+		dictionaryFile = get(args, "dictionary");
+		int cacheSize = getInt(args, "cacheSize", 10000);
+		if (getBoolean(args, "cache", false)) {
+			cache = new VariantCache(cacheSize, statistics);
+		}
+	}
+
+	@Override
+	public void inform(ResourceLoader loader) throws IOException {
+		if (dictionaryFile != null) {
+			try (InputStream in = loader.openResource(dictionaryFile)) {
+				dictionary = LemmaDictionary.load(in);
+			}
+		}
 	}
 
 	@Override
 	public TokenStream create(TokenStream ts) {
-		return new LemmaNormalizingFilter(ts);
+		return new LemmaNormalizingFilter(ts, maxVariants, dictionary, cache, statistics);
+	}
+
+	@Override
+	public FilterStatistics getStatistics() {
+		return statistics;
 	}
 
 }
@@ -0,0 +1,196 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Does the work of LemmaNormalizingFilter followed by UmlautFilter in one step: for each lemma variant, all its
+ * umlaut variants are created, and each distinct term of this cross product is emitted once, in the same order as
+ * the two filters would emit them. All terms stay on the position of the original lemma.
+ *
+ * At most maxVariants terms are emitted per token. Like in UmlautFilter, the mappings and the cache are taken from
+ * the factory in reset().
+ */
+public final class LemmaUmlautFilter extends TokenFilter {
+
+	private static final char[][] NO_TERMS = new char[0][];
+
+	private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
+	private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
+	private final OffsetAttribute offsetAttr = addAttribute(OffsetAttribute.class);
+	private int startOffset = 0;
+	private int endOffset = 0;
+	private int posIncr = 1;
+	private char[][] terms = NO_TERMS;
+	private int nextTerm = 0;
+
+	private final AtomicReference<UmlautMappings> currentMappings;
+	private final AtomicReference<VariantCache> currentCache;
+	private UmlautMappings mappings;
+	private VariantCache cache;
+	private final VariantCache.Key cacheKey = new VariantCache.Key();
+	private final int maxVariants;
+	private final LemmaNormalizer normalizer;
+	private final UmlautVariants umlautVariants = new UmlautVariants();
+	private final ReusableTermSet distinctTerms = new ReusableTermSet();
+	private char[] lemmaChars = new char[32];
+
+	private final FilterStatistics statistics;
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+	private long passedThrough = 0;
+	private long expanded = 0;
+	private long capped = 0;
+	private long duplicates = 0;
+
+	/**
+	 * The factory must replace the cache after the mappings, see UmlautFilter.
+	 */
+	public LemmaUmlautFilter(TokenStream input, AtomicReference<UmlautMappings> currentMappings, int maxVariants,
+			AtomicReference<VariantCache> currentCache, FilterStatistics statistics) {
+		super(input);
+		this.currentMappings = currentMappings;
+		this.currentCache = currentCache;
+		this.maxVariants = maxVariants;
+		this.statistics = statistics;
+		normalizer = new LemmaNormalizer(maxVariants);
+		takeCurrentMappings();
+	}
+
+	private void takeCurrentMappings() {
+		cache = currentCache.get();
+		mappings = currentMappings.get();
+	}
+
+	@Override
+	public boolean incrementToken() throws IOException {
+		while (true) {
+			if (nextTerm < terms.length) {
+				char[] term = terms[nextTerm];
+				nextTerm++;
+				termAttr.copyBuffer(term, 0, term.length);
+				offsetAttr.setOffset(startOffset, endOffset);
+				posIncrAttr.setPositionIncrement(posIncr);
+
+				posIncr = 0;
+				return true;
+			}
+
+			if (!input.incrementToken()) {
+				return false;
+			}
+			String currentTerm = termAttr.toString();
+			startOffset = offsetAttr.startOffset();
+			endOffset = offsetAttr.endOffset();
+			if (LemmaNormalizingFilter.hasUnnecessaryLeftParen(currentTerm)) {
+				currentTerm = currentTerm.substring(1);
+				startOffset++;
+			} else if (LemmaNormalizingFilter.hasUnnecessaryRightParen(currentTerm)) {
+				currentTerm = currentTerm.substring(0, currentTerm.length() - 1);
+				endOffset--;
+			}
+			// like LemmaNormalizingFilter, keep a position increment of 0 coming from earlier filters
+			posIncr = posIncrAttr.getPositionIncrement() == 0 ? 0 : 1;
+			nextTerm = 0;
+
+			if (cache != null) {
+				terms = cache.get(cacheKey.set(currentTerm));
+				if (terms != null) {
+					cacheHits++;
+					continue;
+				}
+				cacheMisses++;
+			}
+			terms = createTerms(currentTerm);
+			if (cache != null) {
+				cache.put(cacheKey, terms);
+			}
+		}
+	}
+
+	private char[][] createTerms(String lemma) {
+		distinctTerms.clear();
+		boolean cappedToken = false;
+		int createdCount = 0;
+
+		List<String> lemmaVariants = normalizer.createMappings(lemma);
+		if (normalizer.isCapped()) {
+			cappedToken = true;
+		}
+		for (String lemmaVariant : lemmaVariants) {
+			if (!umlautVariants.findMatches(mappings, lemmaVariant)) {
+				if (distinctTerms.size() >= maxVariants) {
+					cappedToken = true;
+					break;
+				}
+				int length = lemmaVariant.length();
+				if (length > lemmaChars.length) {
+					lemmaChars = ArrayUtil.grow(lemmaChars, length);
+				}
+				lemmaVariant.getChars(0, length, lemmaChars, 0);
+				distinctTerms.add(lemmaChars, 0, length);
+				createdCount++;
+				continue;
+			}
+			// the term attribute is free to be used here, the current term was already read
+			long variantsCount = umlautVariants.count();
+			for (long i = 0; i < variantsCount; i++) {
+				if (distinctTerms.size() >= maxVariants) {
+					cappedToken = true;
+					break;
+				}
+				umlautVariants.write(i, termAttr);
+				distinctTerms.add(termAttr.buffer(), 0, termAttr.length());
+				createdCount++;
+			}
+		}
+
+		duplicates += createdCount - distinctTerms.size();
+		if (cappedToken) {
+			capped++;
+		}
+		if (distinctTerms.size() > 1) {
+			expanded++;
+		} else {
+			passedThrough++;
+		}
+		return distinctTerms.toArrays();
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		statistics.add(UmlautFilter.PASSED_THROUGH, passedThrough);
+		statistics.add(UmlautFilter.EXPANDED, expanded);
+		statistics.add(UmlautFilter.CAPPED, capped);
+		statistics.add(UmlautFilter.DUPLICATES, duplicates);
+		statistics.add(VariantCache.HITS, cacheHits);
+		statistics.add(VariantCache.MISSES, cacheMisses);
+		cacheHits = 0;
+		cacheMisses = 0;
+		passedThrough = 0;
+		expanded = 0;
+		capped = 0;
+		duplicates = 0;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		super.reset();
+		takeCurrentMappings();
+		terms = NO_TERMS;
+		nextTerm = 0;
+		startOffset = 0;
+		endOffset = 0;
+		posIncr = 1;
+	}
+
+}
@@ -0,0 +1,29 @@
+package sub.fwb;
+
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+
+/**
+ * Replaces a LemmaNormalizingFilterFactory followed by an UmlautFilterFactory, e. g.:
+ * 
+ * <filter class="sub.fwb.LemmaUmlautFilterFactory" file="umlaut_mappings.txt" />
+ * 
+ * It accepts the same parameters as the UmlautFilterFactory, except for the folding mode. Like for the
+ * LemmaNormalizingFilterFactory, maxVariants has a default.
+ */
+public class LemmaUmlautFilterFactory extends UmlautFilterFactory {
+
+	public LemmaUmlautFilterFactory(Map<String, String> args) {
+		super(args, LemmaNormalizer.DEFAULT_MAX_VARIANTS);
+		if (isFolding()) {
+			throw new IllegalArgumentException("The folding mode is not supported for lemmas");
+		}
+	}
+
+	@Override
+	public TokenStream create(TokenStream ts) {
+		return new LemmaUmlautFilter(ts, getCurrentMappings(), getMaxVariants(), getCurrentCache(), getStatistics());
+	}
+
+}
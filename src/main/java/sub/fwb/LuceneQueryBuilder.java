@@ -0,0 +1,379 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.RegexpQuery;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.solr.parser.ParseException;
+import org.apache.solr.search.QParser;
+
+import sub.fwb.parse.ParseUtil;
+import sub.fwb.parse.ParsedQuery;
+import sub.fwb.parse.QueryFields;
+import sub.fwb.parse.QueryNode;
+import sub.fwb.parse.tokens.ComplexPhrase;
+import sub.fwb.parse.tokens.ComplexPhrasePrefixed;
+import sub.fwb.parse.tokens.Phrase;
+import sub.fwb.parse.tokens.PhrasePrefixed;
+import sub.fwb.parse.tokens.QueryToken;
+import sub.fwb.parse.tokens.QueryTokenPrefixed;
+import sub.fwb.parse.tokens.Regex;
+import sub.fwb.parse.tokens.RegexPrefixed;
+import sub.fwb.parse.tokens.Term;
+import sub.fwb.parse.tokens.TermKind;
+import sub.fwb.parse.tokens.TermPrefixed;
+
+/**
+ * Turns a parsed user query into Lucene queries, with the same structure as the query string that
+ * ParametersModifier creates for edismax. Search strings without a field are searched in all qf fields, the
+ * best field counts.
+ */
+class LuceneQueryBuilder implements QueryNode.Visitor<Query> {
+
+	private final FieldQueries fieldQueries;
+	private final List<QueryToken> tokens;
+	private final QueryNode root;
+	private final QueryFields fields;
+	private final String ending;
+	// null if infixes and word ends are searched with wildcards
+	private final SuffixIndexes suffixIndexes;
+	// above this number of terms, wildcard queries are used instead of term lists
+	private final int maxExpandedTerms;
+	private boolean hasNot = false;
+	// the search string of the part of a word that is being built, and its terms per field, null if too many
+	private String partOfWord;
+	private final Map<String, PartOfWordTerms> partOfWordTerms = new HashMap<>();
+
+	LuceneQueryBuilder(QParser parser, ParsedQuery parsed, SuffixIndexes suffixIndexes, int maxExpandedTerms) {
+		this(new SchemaFieldQueries(parser), parsed, suffixIndexes, maxExpandedTerms);
+	}
+
+	LuceneQueryBuilder(FieldQueries fieldQueries, ParsedQuery parsed, SuffixIndexes suffixIndexes,
+			int maxExpandedTerms) {
+		this.fieldQueries = fieldQueries;
+		this.suffixIndexes = suffixIndexes;
+		this.maxExpandedTerms = maxExpandedTerms;
+		tokens = parsed.getTokens();
+		root = parsed.getRoot();
+		fields = parsed.getFields();
+		ending = fields.getSolrFieldEnding();
+	}
+
+	Query build() throws ParseException {
+		if (root == null) {
+			throw new ParseException("Die Suchanfrage ist ungültig");
+		}
+		Query query = root.accept(this);
+		if (hasNot) {
+			BooleanQuery.Builder withoutSources = new BooleanQuery.Builder();
+			withoutSources.add(query, Occur.MUST);
+			withoutSources.add(new TermQuery(new org.apache.lucene.index.Term("type", "quelle")), Occur.MUST_NOT);
+			query = withoutSources.build();
+		}
+		return query;
+	}
+
+	@Override
+	public Query visitSearchString(int tokenIndex) throws ParseException {
+		QueryToken token = tokens.get(tokenIndex);
+		if (token instanceof Term) {
+			Term term = (Term) token;
+			TermKind kind = term.getKind();
+			String pattern = kind.pattern(term.getSearchString());
+			List<String> inArticle = new ArrayList<>();
+			inArticle.add(ParseUtil.article(ending));
+			inArticle.add(ParseUtil.citation(ending));
+			if (kind == TermKind.PART_OF_WORD) {
+				inArticle.add(ParseUtil.sufo(ending));
+			}
+			if (kind == TermKind.PART_OF_WORD) {
+				partOfWord = term.getSearchString();
+				partOfWordTerms.clear();
+			}
+			try {
+				return boostedAndRestricted(kind.alternatives(term.getSearchString()), pattern, inArticle);
+			} finally {
+				partOfWord = null;
+			}
+		} else if (token instanceof Phrase) {
+			String phrase = token.getEscapedString();
+			List<String> inArticle = new ArrayList<>();
+			inArticle.add(ParseUtil.article(ending));
+			inArticle.add(ParseUtil.citation(ending));
+			List<String> alternatives = new ArrayList<>();
+			alternatives.add(phrase);
+			return boostedAndRestricted(alternatives, phrase, inArticle);
+		} else if (token instanceof ComplexPhrase) {
+			((ComplexPhrase) token).checkSyntax();
+			String phrase = token.getEscapedString();
+			BooleanQuery.Builder inArticle = new BooleanQuery.Builder();
+			inArticle.add(fieldQueries.complexPhraseQuery(ParseUtil.article(ending), phrase), Occur.SHOULD);
+			inArticle.add(fieldQueries.complexPhraseQuery(ParseUtil.citation(ending), phrase), Occur.SHOULD);
+			BooleanQuery.Builder query = new BooleanQuery.Builder();
+			query.add(inAllQueryFields(phrase, true), Occur.SHOULD);
+			query.add(inArticle.build(), Occur.MUST);
+			return query.build();
+		} else if (token instanceof Regex) {
+			String regex = token.getOriginalTokenString();
+			BooleanQuery.Builder query = new BooleanQuery.Builder();
+			query.add(regexQuery(ParseUtil.article(ending), regex), Occur.SHOULD);
+			query.add(regexQuery(ParseUtil.citation(ending), regex), Occur.SHOULD);
+			return query.build();
+		} else if (token instanceof TermPrefixed) {
+			TermPrefixed term = (TermPrefixed) token;
+			String field = term.getPrefixWithEnding();
+			String boost = fields.getBoosts().get(field);
+			if (boost == null) {
+				throw new ParseException("Suchfeld existiert nicht: " + field);
+			}
+			List<String> alternatives = term.getKind().alternatives(term.getSearchString());
+			Query query;
+			if (alternatives.size() == 1) {
+				query = orNothing(fieldQuery(field, alternatives.get(0)));
+			} else {
+				BooleanQuery.Builder anyAlternative = new BooleanQuery.Builder();
+				for (String alternative : alternatives) {
+					addIfNotNull(anyAlternative, fieldQuery(field, alternative), Occur.SHOULD);
+				}
+				query = anyAlternative.build();
+			}
+			return boosted(query, boost);
+		} else if (token instanceof PhrasePrefixed) {
+			QueryTokenPrefixed phrase = (QueryTokenPrefixed) token;
+			return orNothing(fieldQuery(phrase.getPrefixWithEnding(), phrase.getPostfix()));
+		} else if (token instanceof ComplexPhrasePrefixed) {
+			((ComplexPhrasePrefixed) token).checkSyntax();
+			QueryTokenPrefixed phrase = (QueryTokenPrefixed) token;
+			return fieldQueries.complexPhraseQuery(phrase.getPrefixWithEnding(), phrase.getPostfix());
+		} else if (token instanceof RegexPrefixed) {
+			QueryTokenPrefixed regex = (QueryTokenPrefixed) token;
+			return regexQuery(regex.getPrefixWithEnding(), regex.getPostfix());
+		}
+		throw new ParseException("Die Suchanfrage ist ungültig");
+	}
+
+	@Override
+	public Query visitGroup(Query inner) {
+		if (inner == null) {
+			return new BooleanQuery.Builder().build();
+		}
+		return inner;
+	}
+
+	@Override
+	public Query visitNot(Query operand) {
+		hasNot = true;
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		query.add(new MatchAllDocsQuery(), Occur.MUST);
+		query.add(operand, Occur.MUST_NOT);
+		return query.build();
+	}
+
+	@Override
+	public Query visitAnd(List<Query> operands) {
+		return connect(operands, Occur.MUST);
+	}
+
+	@Override
+	public Query visitOr(List<Query> operands) {
+		return connect(operands, Occur.SHOULD);
+	}
+
+	private Query connect(List<Query> operands, Occur occur) {
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		for (Query operand : operands) {
+			query.add(operand, occur);
+		}
+		return query.build();
+	}
+
+	// (imbis imbis* +(artikel:imbis* zitat:imbis*))
+	private Query boostedAndRestricted(List<String> alternatives, String pattern, List<String> inArticleFields)
+			throws ParseException {
+		BooleanQuery.Builder query = new BooleanQuery.Builder();
+		for (String alternative : alternatives) {
+			query.add(inAllQueryFields(alternative, false), Occur.SHOULD);
+		}
+		BooleanQuery.Builder inArticle = new BooleanQuery.Builder();
+		for (String field : inArticleFields) {
+			addIfNotNull(inArticle, fieldQuery(field, pattern), Occur.SHOULD);
+		}
+		query.add(inArticle.build(), Occur.MUST);
+		return query.build();
+	}
+
+	private Query inAllQueryFields(String searchString, boolean complexPhrase) throws ParseException {
+		Map<String, String> boosts = fields.getBoosts();
+		List<Query> perField = new ArrayList<>();
+		for (String field : fields.getMapForFacetQueries().keySet()) {
+			Query query;
+			if (complexPhrase) {
+				query = fieldQueries.complexPhraseQuery(field, searchString);
+			} else {
+				query = fieldQuery(field, searchString);
+			}
+			if (query != null) {
+				perField.add(boosted(query, boosts.get(field)));
+			}
+		}
+		return new DisjunctionMaxQuery(perField, 0);
+	}
+
+	private Query boosted(Query query, String boost) {
+		if (boost == null || boost.isEmpty()) {
+			return query;
+		}
+		return new BoostQuery(query, Float.parseFloat(boost.substring(1)));
+	}
+
+	/**
+	 * @return the query for a term, a term with wildcards, a fuzzy term, or a phrase, or null if the analyzer
+	 *         removes everything
+	 */
+	private Query fieldQuery(String field, String escapedText) throws ParseException {
+		if (fields.isRewritten(escapedText)) {
+			// *imbis* -> imbis* in the field with all suffixes, *imbis -> sibmi* in the field with reversed terms
+			String pattern = escapedText;
+			field = fields.fieldFor(field, pattern);
+			escapedText = fields.patternFor(pattern);
+		} else if (isTierOfPartOfWord(escapedText)) {
+			Query tier = partOfWordQuery(field, escapedText.startsWith("*"));
+			if (tier != null) {
+				return tier;
+			}
+		} else if (suffixIndexes != null && suffixIndexes.get(field) != null) {
+			Query expanded = expandWithSuffixIndex(field, escapedText);
+			if (expanded != null) {
+				return expanded;
+			}
+		}
+		if (escapedText.endsWith("~1") || escapedText.endsWith("~2")) {
+			int edits = escapedText.charAt(escapedText.length() - 1) - '0';
+			String text = unescape(escapedText.substring(0, escapedText.length() - 2));
+			return new FuzzyQuery(new org.apache.lucene.index.Term(field, fieldQueries.multiTerm(field, text)), edits);
+		} else if (escapedText.startsWith("\"") && escapedText.endsWith("\"")) {
+			String text = unescape(escapedText.substring(1, escapedText.length() - 1));
+			return fieldQueries.phraseQuery(field, text);
+		} else if (escapedText.contains("*") || escapedText.contains("?")) {
+			String text = unescape(escapedText);
+			return new WildcardQuery(new org.apache.lucene.index.Term(field, fieldQueries.multiTerm(field, text)));
+		}
+		return fieldQueries.termQuery(field, unescape(escapedText));
+	}
+
+	/**
+	 * @return the terms that *imbis* or *imbis stands for, or null if the pattern has other wildcards or if there
+	 *         are more than maxExpandedTerms terms
+	 */
+	private Query expandWithSuffixIndex(String field, String escapedText) throws ParseException {
+		boolean infix = escapedText.endsWith("*");
+		if (!escapedText.startsWith("*") || escapedText.length() < (infix ? 3 : 2)) {
+			return null;
+		}
+		String core = escapedText.substring(1, escapedText.length() - (infix ? 1 : 0));
+		if (core.contains("*") || core.contains("?")) {
+			return null;
+		}
+		String analyzed = fieldQueries.multiTerm(field, unescape(core)).utf8ToString();
+		TermSuffixIndex index = suffixIndexes.get(field);
+		int[] ordinals = infix ? index.termsContaining(analyzed) : index.termsEndingWith(analyzed);
+		if (ordinals.length > maxExpandedTerms) {
+			return null;
+		}
+		List<BytesRef> terms = new ArrayList<>(ordinals.length);
+		for (int ordinal : ordinals) {
+			terms.add(new BytesRef(index.term(ordinal)));
+		}
+		return new TermInSetQuery(field, terms);
+	}
+
+	// imbis* or *imbis* for the part of a word imbis
+	private boolean isTierOfPartOfWord(String escapedText) {
+		return partOfWord != null
+				&& (escapedText.equals(partOfWord + "*") || escapedText.equals("*" + partOfWord + "*"));
+	}
+
+	/**
+	 * Like the wildcard queries, the terms of a tier are scored with a constant score, so the ranking stays the
+	 * same. The exact term is not part of it, because it is found without going through the dictionary.
+	 * 
+	 * @return the terms that imbis* or *imbis* stands for, or null if the search string has wildcards itself or if
+	 *         there are more than maxExpandedTerms terms
+	 */
+	private Query partOfWordQuery(String field, boolean infix) throws ParseException {
+		if (partOfWord.contains("*") || partOfWord.contains("?")) {
+			return null;
+		}
+		if (!partOfWordTerms.containsKey(field)) {
+			String analyzed = fieldQueries.multiTerm(field, unescape(partOfWord)).utf8ToString();
+			if (analyzed.isEmpty()) {
+				return null;
+			}
+			partOfWordTerms.put(field, collectPartOfWordTerms(field, analyzed));
+		}
+		PartOfWordTerms tiers = partOfWordTerms.get(field);
+		if (tiers == null) {
+			return null;
+		}
+		return new TermInSetQuery(field, infix ? tiers.containing() : tiers.startingWith());
+	}
+
+	private PartOfWordTerms collectPartOfWordTerms(String field, String analyzed) {
+		if (suffixIndexes != null && suffixIndexes.get(field) != null) {
+			return PartOfWordTerms.collect(suffixIndexes.get(field), analyzed, maxExpandedTerms);
+		}
+		try {
+			return PartOfWordTerms.collect(fieldQueries.terms(field), analyzed, maxExpandedTerms);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the terms", e);
+		}
+	}
+
+	// /imbi[sß]/
+	private Query regexQuery(String field, String regexWithSlashes) throws ParseException {
+		fieldQueries.checkField(field);
+		String regex = regexWithSlashes.substring(1, regexWithSlashes.length() - 1);
+		return new RegexpQuery(new org.apache.lucene.index.Term(field, regex));
+	}
+
+	private Query orNothing(Query query) {
+		if (query == null) {
+			return new BooleanQuery.Builder().build();
+		}
+		return query;
+	}
+
+	private void addIfNotNull(BooleanQuery.Builder builder, Query query, Occur occur) {
+		if (query != null) {
+			builder.add(query, occur);
+		}
+	}
+
+	// imbis\-gast -> imbis-gast
+	private static String unescape(String escaped) {
+		StringBuilder unescaped = new StringBuilder(escaped.length());
+		for (int i = 0; i < escaped.length(); i++) {
+			char c = escaped.charAt(i);
+			if (c == '\\' && i + 1 < escaped.length()) {
+				c = escaped.charAt(++i);
+			}
+			unescaped.append(c);
+		}
+		return unescaped.toString();
+	}
+
+}
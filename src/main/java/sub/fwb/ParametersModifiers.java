@@ -0,0 +1,54 @@
+package sub.fwb;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one ParametersModifier for each combination of qf and hl.fl, so that the search handlers do not have to
+ * prepare the query fields again for every request. Usually there are only a few combinations in the solrconfig,
+ * the bound only protects against requests with arbitrary parameters.
+ */
+class ParametersModifiers {
+
+	static final String INFIX_FIELD_ENDING = "infixFieldEnding";
+	static final String REVERSED_FIELD_ENDING = "reversedFieldEnding";
+	private static final int MAX_SIZE = 256;
+
+	private final ConcurrentMap<List<String>, ParametersModifier> modifiers = new ConcurrentHashMap<>();
+	private final String infixFieldEnding;
+	private final String reversedFieldEnding;
+
+	ParametersModifiers() {
+		this(null, null);
+	}
+
+	/**
+	 * @param infixFieldEnding
+	 *            see ParametersModifier
+	 * @param reversedFieldEnding
+	 *            see ParametersModifier
+	 */
+	ParametersModifiers(String infixFieldEnding, String reversedFieldEnding) {
+		this.infixFieldEnding = infixFieldEnding;
+		this.reversedFieldEnding = reversedFieldEnding;
+	}
+
+	ParametersModifier get(String qf, String hlFl) {
+		List<String> key = Arrays.asList(qf, hlFl);
+		ParametersModifier modifier = modifiers.get(key);
+		if (modifier == null) {
+			if (modifiers.size() >= MAX_SIZE) {
+				modifiers.clear();
+			}
+			modifier = new ParametersModifier(qf, hlFl, infixFieldEnding, reversedFieldEnding);
+			ParametersModifier previous = modifiers.putIfAbsent(key, modifier);
+			if (previous != null) {
+				modifier = previous;
+			}
+		}
+		return modifier;
+	}
+
+}
@@ -1,5 +1,8 @@
 package sub.fwb;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -11,15 +14,46 @@ import org.apache.solr.response.SolrQueryResponse;
 
 public class ParametersModifyingSearchHandler extends SearchHandler {
 
+	private String infixFieldEnding;
+	private String reversedFieldEnding;
+	private ParametersModifiers modifiers = new ParametersModifiers();
+	private RewriteCache cache = new RewriteCache(null);
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void init(NamedList args) {
+		super.init(args);
+		cache = new RewriteCache((String) args.get(RewriteCache.PARAMETER));
+		infixFieldEnding = (String) args.get(ParametersModifiers.INFIX_FIELD_ENDING);
+		reversedFieldEnding = (String) args.get(ParametersModifiers.REVERSED_FIELD_ENDING);
+		modifiers = new ParametersModifiers(infixFieldEnding, reversedFieldEnding);
+	}
+
 	@Override
 	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
 
 		String oldQuery = req.getParams().get("q"); // lemma:imbis
 		String queryFieldsWithBoosts = req.getParams().get("qf"); // lemma^10000 neblem^1000 ...
 		String hlFields = req.getParams().get("hl.fl"); // lemma_text,neblem_text,...
-		ParametersModifier modifier = new ParametersModifier(queryFieldsWithBoosts, hlFields);
-		ModifiedParameters modified = modifier.changeParamsForQuery(oldQuery);
-		
+		String[] filterQueries = req.getParams().getParams("fq");
+		String hlFilterQuery = null;
+		if (filterQueries != null && filterQueries.length > 0 && !filterQueries[filterQueries.length - 1].startsWith("wortart")) {
+			hlFilterQuery = filterQueries[filterQueries.length - 1];
+		}
+
+		List<String> key = Arrays.asList("q", oldQuery, queryFieldsWithBoosts, hlFields, hlFilterQuery, infixFieldEnding,
+				reversedFieldEnding);
+		ModifiedParameters modified = cache.get(req, key);
+		if (modified == null) {
+			ParametersModifier modifier = modifiers.get(queryFieldsWithBoosts, hlFields);
+			modified = modifier.changeParamsForQuery(oldQuery);
+			if (hlFilterQuery != null) {
+				modified = new ModifiedParameters(modified.q, rewriteHlQuery(hlFilterQuery), modified.qf, modified.hlFl,
+						modified.defType, modified.facetQueries);
+			}
+			cache.put(req, key, modified);
+		}
+
 		String newQuery = modified.q; // lemma:(imbis imbis* *imbis*)^10000
 		String newHlQuery = modified.hlQ; // lemma_text:*imbis*
 		String newHlFields = modified.hlFl;
@@ -27,11 +61,6 @@ public class ParametersModifyingSearchHandler extends SearchHandler {
 		String defType = modified.defType;
 		Set<String> facetQueries = modified.facetQueries;
 
-		String[] filterQueries = req.getParams().getParams("fq");
-		if (filterQueries != null && filterQueries.length > 0 && !filterQueries[filterQueries.length - 1].startsWith("wortart")) {
-			newHlQuery = rewriteHlQuery(filterQueries);
-		}
-
 		ModifiableSolrParams newParams = new ModifiableSolrParams(req.getParams());
 		if (!"".equals(defType)) {
 			newParams.set("defType", defType);
@@ -58,8 +87,7 @@ public class ParametersModifyingSearchHandler extends SearchHandler {
 		super.handleRequestBody(req, rsp);
 	}
 
-	private String rewriteHlQuery(String[] filterQueries) {
-		String lastFq = filterQueries[filterQueries.length - 1];
+	private String rewriteHlQuery(String lastFq) {
 		String rewritten = "";
 		if (lastFq.contains("_exakt:")) {
 			rewritten = lastFq.replace("_exakt:", "_text_exakt:");
@@ -69,13 +97,16 @@ public class ParametersModifyingSearchHandler extends SearchHandler {
 		return rewritten;
 	}
 
+	/**
+	 * Immutable, because the same instance is shared by all requests through the RewriteCache.
+	 */
 	public static class ModifiedParameters {
-		public String q = "";
-		public String hlQ = "";
-		public String qf = "";
-		public String hlFl = "";
-		public String defType = "";
-		public Set<String> facetQueries;
+		public final String q;
+		public final String hlQ;
+		public final String qf;
+		public final String hlFl;
+		public final String defType;
+		public final Set<String> facetQueries;
 
 		public ModifiedParameters(String q, String hlQ, String qf, String hlFl, String defType, Set<String> facetQueries) {
 			this.q = q;
@@ -83,7 +114,7 @@ public class ParametersModifyingSearchHandler extends SearchHandler {
 			this.qf = qf;
 			this.hlFl = hlFl;
 			this.defType = defType;
-			this.facetQueries = facetQueries;
+			this.facetQueries = Collections.unmodifiableSet(facetQueries);
 		}
 	}
 
@@ -0,0 +1,90 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+
+/**
+ * The terms of one field that a part of a word stands for, sorted into tiers: the terms that start with it (imbis*)
+ * and all terms that contain it (*imbis*). Both tiers come from one pass over the term dictionary, or from the
+ * suffix index of the field, instead of one pass for each wildcard query. Unlike a wildcard query, the terms are
+ * kept until the query is built, so there is a limit for their number.
+ */
+final class PartOfWordTerms {
+
+	private final List<BytesRef> startingWith = new ArrayList<>();
+	private final List<BytesRef> containing = new ArrayList<>();
+
+	private PartOfWordTerms() {
+	}
+
+	/**
+	 * @return null if more than maxTerms terms contain the part of the word
+	 */
+	static PartOfWordTerms collect(BytesRefIterator terms, String partOfWord, int maxTerms) throws IOException {
+		PartOfWordTerms tiers = new PartOfWordTerms();
+		BytesRef searched = new BytesRef(partOfWord);
+		BytesRef term;
+		while ((term = terms.next()) != null) {
+			// UTF-8 never matches in the middle of a char, so the bytes can be compared directly
+			int found = indexOf(term, searched);
+			if (found >= 0) {
+				if (tiers.containing.size() == maxTerms) {
+					return null;
+				}
+				tiers.add(BytesRef.deepCopyOf(term), found == 0);
+			}
+		}
+		return tiers;
+	}
+
+	/**
+	 * @return null if more than maxTerms terms contain the part of the word
+	 */
+	static PartOfWordTerms collect(TermSuffixIndex index, String partOfWord, int maxTerms) {
+		int[] ordinals = index.termsContaining(partOfWord);
+		if (ordinals.length > maxTerms) {
+			return null;
+		}
+		PartOfWordTerms tiers = new PartOfWordTerms();
+		for (int ordinal : ordinals) {
+			String term = index.term(ordinal);
+			tiers.add(new BytesRef(term), term.startsWith(partOfWord));
+		}
+		return tiers;
+	}
+
+	private void add(BytesRef term, boolean isPrefix) {
+		if (isPrefix) {
+			startingWith.add(term);
+		}
+		containing.add(term);
+	}
+
+	List<BytesRef> startingWith() {
+		return startingWith;
+	}
+
+	List<BytesRef> containing() {
+		return containing;
+	}
+
+	private static int indexOf(BytesRef term, BytesRef searched) {
+		int last = term.length - searched.length;
+		for (int i = 0; i <= last; i++) {
+			int j = 0;
+			while (j < searched.length
+					&& term.bytes[term.offset + i + j] == searched.bytes[searched.offset + j]) {
+				j++;
+			}
+			if (j == searched.length) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,122 @@
+package sub.fwb;
+
+import java.util.Arrays;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Small open-addressing hash set of terms, which copies the added chars into its own buffer. It is meant to be
+ * cleared and refilled for every token of a filter, without creating new objects each time.
+ */
+final class ReusableTermSet {
+
+	private char[] chars = new char[64];
+	private int charsUsed = 0;
+	private int[] starts = new int[8];
+	private int[] lengths = new int[8];
+	private int[] hashes = new int[8];
+	private int size = 0;
+	// indexes of the terms, -1 for empty slots
+	private int[] slots = newSlots(16);
+
+	/**
+	 * @return true if the term was not in the set yet
+	 */
+	boolean add(char[] buffer, int offset, int length) {
+		if (size * 2 >= slots.length) {
+			rehash(slots.length * 2);
+		}
+		int hash = hash(buffer, offset, length);
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != -1) {
+			int term = slots[slot];
+			if (hashes[term] == hash && equalsTerm(term, buffer, offset, length)) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		if (charsUsed + length > chars.length) {
+			chars = ArrayUtil.grow(chars, charsUsed + length);
+		}
+		if (size == starts.length) {
+			starts = ArrayUtil.grow(starts, size + 1);
+			lengths = ArrayUtil.grow(lengths, size + 1);
+			hashes = ArrayUtil.grow(hashes, size + 1);
+		}
+		System.arraycopy(buffer, offset, chars, charsUsed, length);
+		starts[size] = charsUsed;
+		lengths[size] = length;
+		hashes[size] = hash;
+		charsUsed += length;
+		slots[slot] = size;
+		size++;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return copies of all terms in the order they were added
+	 */
+	char[][] toArrays() {
+		char[][] terms = new char[size][];
+		for (int i = 0; i < size; i++) {
+			terms[i] = new char[lengths[i]];
+			System.arraycopy(chars, starts[i], terms[i], 0, lengths[i]);
+		}
+		return terms;
+	}
+
+	void clear() {
+		if (size > 0) {
+			Arrays.fill(slots, -1);
+		}
+		size = 0;
+		charsUsed = 0;
+	}
+
+	private boolean equalsTerm(int term, char[] buffer, int offset, int length) {
+		if (lengths[term] != length) {
+			return false;
+		}
+		int start = starts[term];
+		for (int i = 0; i < length; i++) {
+			if (chars[start + i] != buffer[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash(int newSlotsCount) {
+		slots = newSlots(newSlotsCount);
+		int mask = newSlotsCount - 1;
+		for (int term = 0; term < size; term++) {
+			int slot = hashes[term] & mask;
+			while (slots[slot] != -1) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = term;
+		}
+	}
+
+	private static int hash(char[] buffer, int offset, int length) {
+		int hash = 0;
+		for (int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		// spread the bits, since only the lower ones are used for the slots
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int[] newSlots(int count) {
+		int[] newSlots = new int[count];
+		Arrays.fill(newSlots, -1);
+		return newSlots;
+	}
+
+}
@@ -0,0 +1,48 @@
+package sub.fwb;
+
+import java.util.List;
+
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SolrCache;
+
+import sub.fwb.ParametersModifyingSearchHandler.ModifiedParameters;
+
+/**
+ * Access to the user-defined cache of rewritten parameters in solrconfig.xml, which both search handlers share.
+ * The cache is optional, so without a name or without a cache of that name, nothing is cached.
+ */
+class RewriteCache {
+
+	static final String PARAMETER = "rewriteCache";
+
+	private final String cacheName;
+
+	RewriteCache(String cacheName) {
+		this.cacheName = cacheName;
+	}
+
+	/**
+	 * @param key
+	 *            everything that the rewritten parameters depend on, starting with the name of the handler
+	 */
+	ModifiedParameters get(SolrQueryRequest req, List<String> key) {
+		SolrCache<List<String>, ModifiedParameters> cache = cacheOf(req);
+		return cache == null ? null : cache.get(key);
+	}
+
+	void put(SolrQueryRequest req, List<String> key, ModifiedParameters modified) {
+		SolrCache<List<String>, ModifiedParameters> cache = cacheOf(req);
+		if (cache != null) {
+			cache.put(key, modified);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private SolrCache<List<String>, ModifiedParameters> cacheOf(SolrQueryRequest req) {
+		if (cacheName == null) {
+			return null;
+		}
+		return req.getSearcher().getCache(cacheName);
+	}
+
+}
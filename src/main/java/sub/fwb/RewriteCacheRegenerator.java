@@ -0,0 +1,21 @@
+package sub.fwb;
+
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Autowarms the cache of rewritten parameters. A rewritten query does not depend on the index, so the old entries
+ * can be taken over as they are.
+ */
+public class RewriteCacheRegenerator implements CacheRegenerator {
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	@Override
+	public boolean regenerateItem(SolrIndexSearcher newSearcher, SolrCache newCache, SolrCache oldCache,
+			Object oldKey, Object oldVal) {
+		newCache.put(oldKey, oldVal);
+		return true;
+	}
+
+}
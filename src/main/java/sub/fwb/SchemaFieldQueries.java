@@ -0,0 +1,79 @@
+package sub.fwb;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.queryparser.complexPhrase.ComplexPhraseQueryParser;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.QueryBuilder;
+import org.apache.solr.parser.ParseException;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.TextField;
+import org.apache.solr.search.QParser;
+
+/**
+ * The field queries of the schema and the searcher of a request.
+ */
+class SchemaFieldQueries implements FieldQueries {
+
+	private final QParser parser;
+
+	SchemaFieldQueries(QParser parser) {
+		this.parser = parser;
+	}
+
+	@Override
+	public void checkField(String field) throws ParseException {
+		schemaField(field);
+	}
+
+	@Override
+	public Query termQuery(String field, String text) throws ParseException {
+		SchemaField schemaField = schemaField(field);
+		return schemaField.getType().getFieldQuery(parser, schemaField, text);
+	}
+
+	@Override
+	public Query phraseQuery(String field, String text) throws ParseException {
+		FieldType type = schemaField(field).getType();
+		return new QueryBuilder(type.getQueryAnalyzer()).createPhraseQuery(field, text);
+	}
+
+	@Override
+	public Query complexPhraseQuery(String field, String escapedPhrase) throws ParseException {
+		FieldType type = schemaField(field).getType();
+		try {
+			return new ComplexPhraseQueryParser(field, type.getQueryAnalyzer()).parse(escapedPhrase);
+		} catch (org.apache.lucene.queryparser.classic.ParseException e) {
+			throw new ParseException("Die Suchanfrage ist ungültig: " + escapedPhrase);
+		}
+	}
+
+	@Override
+	public BytesRef multiTerm(String field, String text) throws ParseException {
+		FieldType type = schemaField(field).getType();
+		if (type instanceof TextField) {
+			return TextField.analyzeMultiTerm(field, text, ((TextField) type).getMultiTermAnalyzer());
+		}
+		return new BytesRef(text);
+	}
+
+	@Override
+	public BytesRefIterator terms(String field) throws IOException {
+		Terms terms = MultiFields.getTerms(parser.getReq().getSearcher().getIndexReader(), field);
+		return terms == null ? BytesRefIterator.EMPTY : terms.iterator();
+	}
+
+	private SchemaField schemaField(String field) throws ParseException {
+		SchemaField schemaField = parser.getReq().getSchema().getFieldOrNull(field);
+		if (schemaField == null) {
+			throw new ParseException("Suchfeld existiert nicht: " + field);
+		}
+		return schemaField;
+	}
+
+}
@@ -0,0 +1,10 @@
+package sub.fwb;
+
+/**
+ * Implemented by filter factories whose statistics are shown by the FilterStatisticsHandler.
+ */
+public interface StatisticsProvider {
+
+	public FilterStatistics getStatistics();
+
+}
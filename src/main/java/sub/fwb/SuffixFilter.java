@@ -0,0 +1,93 @@
+package sub.fwb;
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Adds all suffixes of each term on the same position, e. g. imbis, mbis, bis, is, s. A search for *bi* can then
+ * be answered by the prefix query bi* and a search for *is by the term is, without going through the whole term
+ * dictionary. Suffixes start at code points, so that surrogate pairs are not split.
+ *
+ * Terms on the same position, like the variants of UmlautFilter, mostly share their suffixes. Each suffix is only
+ * emitted once per position.
+ */
+public final class SuffixFilter extends TokenFilter {
+	public static final String SUFFIXES = "suffixes";
+
+	private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
+	private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
+	private final ReusableTermSet emittedTerms = new ReusableTermSet();
+
+	// copy of the current input term
+	private char[] termChars = new char[32];
+	private int termLength = 0;
+	private int nextSuffixStart = 0;
+
+	private final FilterStatistics statistics;
+	private long suffixes = 0;
+	private long duplicates = 0;
+
+	public SuffixFilter(TokenStream input, FilterStatistics statistics) {
+		super(input);
+		this.statistics = statistics;
+	}
+
+	@Override
+	public boolean incrementToken() throws IOException {
+		while (true) {
+			while (nextSuffixStart < termLength) {
+				int start = nextSuffixStart;
+				nextSuffixStart += Character.charCount(Character.codePointAt(termChars, start, termLength));
+				if (!emittedTerms.add(termChars, start, termLength - start)) {
+					duplicates++;
+					continue;
+				}
+				suffixes++;
+				termAttr.copyBuffer(termChars, start, termLength - start);
+				posIncrAttr.setPositionIncrement(0);
+				return true;
+			}
+
+			if (!input.incrementToken()) {
+				return false;
+			}
+			if (posIncrAttr.getPositionIncrement() > 0) {
+				emittedTerms.clear();
+			}
+			termLength = termAttr.length();
+			if (termLength > termChars.length) {
+				termChars = ArrayUtil.grow(termChars, termLength);
+			}
+			System.arraycopy(termAttr.buffer(), 0, termChars, 0, termLength);
+			nextSuffixStart = termLength == 0 ? 0
+					: Character.charCount(Character.codePointAt(termChars, 0, termLength));
+			if (emittedTerms.add(termChars, 0, termLength)) {
+				return true;
+			}
+			duplicates++;
+		}
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		statistics.add(SUFFIXES, suffixes);
+		statistics.add(UmlautFilter.DUPLICATES, duplicates);
+		suffixes = 0;
+		duplicates = 0;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		super.reset();
+		emittedTerms.clear();
+		termLength = 0;
+		nextSuffixStart = 0;
+	}
+
+}
@@ -0,0 +1,34 @@
+package sub.fwb;
+
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+
+/**
+ * Only meant for the index analyzer of the fields that ParametersModifier searches for infixes and suffixes. It
+ * should be the last filter, after the UmlautFilterFactory, so that the suffixes of all variants are indexed.
+ */
+public class SuffixFilterFactory extends TokenFilterFactory implements StatisticsProvider {
+
+	private final FilterStatistics statistics = new FilterStatistics(SuffixFilter.SUFFIXES,
+			UmlautFilter.DUPLICATES);
+
+	public SuffixFilterFactory(Map<String, String> args) {
+		super(args);
+		if (!args.isEmpty()) {
+			throw new IllegalArgumentException("Unknown parameters: " + args);
+		}
+	}
+
+	@Override
+	public TokenStream create(TokenStream ts) {
+		return new SuffixFilter(ts, statistics);
+	}
+
+	@Override
+	public FilterStatistics getStatistics() {
+		return statistics;
+	}
+
+}
@@ -0,0 +1,40 @@
+package sub.fwb;
+
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+
+/**
+ * Shows the size and build time of the suffix indexes of the current searcher, e. g.:
+ * 
+ * <requestHandler name="/admin/fwbsuffixes" class="sub.fwb.SuffixIndexHandler"> <str name="cache">fwbSuffixIndex</str>
+ * </requestHandler>
+ */
+public class SuffixIndexHandler extends RequestHandlerBase {
+
+	private String cacheName;
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void init(NamedList args) {
+		super.init(args);
+		cacheName = (String) args.get("cache");
+	}
+
+	@Override
+	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
+		SuffixIndexes indexes = SuffixIndexes.of(req, cacheName);
+		if (indexes == null) {
+			rsp.add("suffixIndexes", "none");
+		} else {
+			rsp.add("suffixIndexes", indexes.toNamedList());
+		}
+	}
+
+	@Override
+	public String getDescription() {
+		return "Statistics of the FWB suffix indexes";
+	}
+
+}
@@ -0,0 +1,71 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Builds a suffix array over the terms of some fields for every new searcher and puts it into a user-defined cache
+ * of the searcher, e. g.:
+ * 
+ * <listener event="newSearcher" class="sub.fwb.SuffixIndexListener"> <str name="cache">fwbSuffixIndex</str>
+ * <str name="fields">artikel,zitat,sufo,lemma</str> <int name="maxChars">20000000</int> </listener>
+ * 
+ * Fields with more chars in their terms than maxChars are skipped, so the memory stays below about 10 bytes per
+ * char and field.
+ */
+public class SuffixIndexListener implements SolrEventListener {
+
+	private String cacheName;
+	private List<String> fields = new ArrayList<>();
+	private int maxChars = 20000000;
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public void init(NamedList args) {
+		cacheName = (String) args.get("cache");
+		if (cacheName == null) {
+			throw new IllegalArgumentException("Parameter cache is missing");
+		}
+		String fieldsParam = (String) args.get("fields");
+		if (fieldsParam != null) {
+			for (String field : fieldsParam.split(",")) {
+				if (!field.trim().isEmpty()) {
+					fields.add(field.trim());
+				}
+			}
+		}
+		Object maxCharsParam = args.get("maxChars");
+		if (maxCharsParam != null) {
+			maxChars = Integer.parseInt(maxCharsParam.toString());
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public void newSearcher(SolrIndexSearcher newSearcher, SolrIndexSearcher currentSearcher) {
+		SolrCache<String, SuffixIndexes> cache = newSearcher.getCache(cacheName);
+		if (cache == null) {
+			throw new IllegalStateException("No cache with the name " + cacheName);
+		}
+		try {
+			cache.put(SuffixIndexes.KEY, SuffixIndexes.build(newSearcher.getIndexReader(), fields, maxChars));
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not read the terms", e);
+		}
+	}
+
+	@Override
+	public void postCommit() {
+	}
+
+	@Override
+	public void postSoftCommit() {
+	}
+
+}
@@ -0,0 +1,80 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Terms;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.SolrCache;
+
+/**
+ * The suffix indexes of one searcher, kept in a user-defined cache of that searcher, so that they are dropped
+ * together with it. See SuffixIndexListener.
+ */
+final class SuffixIndexes {
+
+	static final String KEY = "suffixIndexes";
+
+	// null values for fields with too many chars
+	private final Map<String, TermSuffixIndex> indexes = new LinkedHashMap<>();
+	private final int maxChars;
+
+	private SuffixIndexes(int maxChars) {
+		this.maxChars = maxChars;
+	}
+
+	static SuffixIndexes build(IndexReader reader, List<String> fields, int maxChars) throws IOException {
+		SuffixIndexes suffixIndexes = new SuffixIndexes(maxChars);
+		for (String field : fields) {
+			Terms terms = MultiFields.getTerms(reader, field);
+			if (terms != null) {
+				suffixIndexes.indexes.put(field, TermSuffixIndex.build(terms.iterator(), maxChars));
+			}
+		}
+		return suffixIndexes;
+	}
+
+	/**
+	 * @return the indexes of the current searcher, or null if there is no cache with this name or the indexes
+	 *         are not built yet
+	 */
+	@SuppressWarnings("unchecked")
+	static SuffixIndexes of(SolrQueryRequest req, String cacheName) {
+		if (cacheName == null) {
+			return null;
+		}
+		SolrCache<String, SuffixIndexes> cache = req.getSearcher().getCache(cacheName);
+		return cache == null ? null : cache.get(KEY);
+	}
+
+	/**
+	 * @return null if the field has no index
+	 */
+	TermSuffixIndex get(String field) {
+		return indexes.get(field);
+	}
+
+	NamedList<Object> toNamedList() {
+		NamedList<Object> list = new SimpleOrderedMap<>();
+		for (Map.Entry<String, TermSuffixIndex> entry : indexes.entrySet()) {
+			NamedList<Object> fieldList = new SimpleOrderedMap<>();
+			TermSuffixIndex index = entry.getValue();
+			if (index == null) {
+				fieldList.add("skipped", "more than " + maxChars + " chars");
+			} else {
+				fieldList.add("terms", index.termsCount());
+				fieldList.add("ramBytesUsed", index.ramBytesUsed());
+				fieldList.add("buildMillis", index.getBuildMillis());
+			}
+			list.add(entry.getKey(), fieldList);
+		}
+		return list;
+	}
+
+}
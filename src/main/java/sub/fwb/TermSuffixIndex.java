@@ -0,0 +1,208 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.IntroSorter;
+
+/**
+ * Suffix array over all terms of one field. The terms are kept in one char array, each of them followed by a
+ * separator, and the suffix array holds the start of every suffix, sorted by the chars up to the separator. All
+ * terms that contain a string are then found with two binary searches, instead of going through the whole term
+ * dictionary. The terms are numbered in the order of the dictionary, these numbers are the ordinals.
+ */
+final class TermSuffixIndex {
+
+	private static final char SEPARATOR = '\u0000';
+
+	private final char[] text;
+	// start of each term in the text, plus the end of the text
+	private final int[] termStarts;
+	private final int[] suffixes;
+	private long buildMillis = 0;
+
+	private TermSuffixIndex(char[] text, int[] termStarts, int[] suffixes) {
+		this.text = text;
+		this.termStarts = termStarts;
+		this.suffixes = suffixes;
+	}
+
+	/**
+	 * @return null if the terms have more than maxChars chars
+	 */
+	static TermSuffixIndex build(BytesRefIterator terms, int maxChars) throws IOException {
+		long start = System.currentTimeMillis();
+		char[] text = new char[1024];
+		int textLength = 0;
+		int[] termStarts = new int[64];
+		int termsCount = 0;
+		int suffixesCount = 0;
+		BytesRef term;
+		while ((term = terms.next()) != null) {
+			String termString = term.utf8ToString();
+			if (textLength + termString.length() + 1 > maxChars) {
+				return null;
+			}
+			if (termsCount + 2 > termStarts.length) {
+				termStarts = ArrayUtil.grow(termStarts, termsCount + 2);
+			}
+			termStarts[termsCount++] = textLength;
+			text = ArrayUtil.grow(text, textLength + termString.length() + 1);
+			termString.getChars(0, termString.length(), text, textLength);
+			textLength += termString.length();
+			text[textLength++] = SEPARATOR;
+			suffixesCount += termString.codePointCount(0, termString.length());
+		}
+		termStarts[termsCount] = textLength;
+
+		int[] suffixes = new int[suffixesCount];
+		int suffix = 0;
+		for (int i = 0; i < textLength; i++) {
+			if (text[i] != SEPARATOR && !Character.isLowSurrogate(text[i])) {
+				suffixes[suffix++] = i;
+			}
+		}
+		TermSuffixIndex index = new TermSuffixIndex(Arrays.copyOf(text, textLength),
+				Arrays.copyOf(termStarts, termsCount + 1), suffixes);
+		index.sortSuffixes();
+		index.buildMillis = System.currentTimeMillis() - start;
+		return index;
+	}
+
+	private void sortSuffixes() {
+		new IntroSorter() {
+			private int pivot;
+
+			@Override
+			protected void swap(int i, int j) {
+				int tmp = suffixes[i];
+				suffixes[i] = suffixes[j];
+				suffixes[j] = tmp;
+			}
+
+			@Override
+			protected int compare(int i, int j) {
+				return compareSuffixes(suffixes[i], suffixes[j]);
+			}
+
+			@Override
+			protected void setPivot(int i) {
+				pivot = suffixes[i];
+			}
+
+			@Override
+			protected int comparePivot(int j) {
+				return compareSuffixes(pivot, suffixes[j]);
+			}
+		}.sort(0, suffixes.length);
+	}
+
+	private int compareSuffixes(int a, int b) {
+		for (int i = 0;; i++) {
+			char ca = text[a + i];
+			char cb = text[b + i];
+			if (ca != cb) {
+				return ca - cb;
+			}
+			if (ca == SEPARATOR) {
+				return 0;
+			}
+		}
+	}
+
+	/**
+	 * @return the ordinals of all terms that contain the infix, in ascending order
+	 */
+	int[] termsContaining(String infix) {
+		return termsWithSuffixStartingWith(infix);
+	}
+
+	/**
+	 * @return the ordinals of all terms that end with the suffix, in ascending order
+	 */
+	int[] termsEndingWith(String suffix) {
+		return termsWithSuffixStartingWith(suffix + SEPARATOR);
+	}
+
+	String term(int ordinal) {
+		int start = termStarts[ordinal];
+		return new String(text, start, termStarts[ordinal + 1] - start - 1);
+	}
+
+	int termsCount() {
+		return termStarts.length - 1;
+	}
+
+	long ramBytesUsed() {
+		return 2L * text.length + 4L * termStarts.length + 4L * suffixes.length;
+	}
+
+	long getBuildMillis() {
+		return buildMillis;
+	}
+
+	private int[] termsWithSuffixStartingWith(String key) {
+		int from = firstSuffixNotBefore(key, false);
+		int to = firstSuffixNotBefore(key, true);
+		BitSet found = new BitSet();
+		for (int i = from; i < to; i++) {
+			found.set(termOf(suffixes[i]));
+		}
+		int[] ordinals = new int[found.cardinality()];
+		int j = 0;
+		for (int ord = found.nextSetBit(0); ord >= 0; ord = found.nextSetBit(ord + 1)) {
+			ordinals[j++] = ord;
+		}
+		return ordinals;
+	}
+
+	// binary search for the first suffix that is greater than or equal to the key, or greater if afterKey is set
+	private int firstSuffixNotBefore(String key, boolean afterKey) {
+		int low = 0;
+		int high = suffixes.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			int comparison = compareToKey(suffixes[middle], key);
+			if (comparison < 0 || afterKey && comparison == 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// 0 if the suffix starts with the key
+	private int compareToKey(int suffix, String key) {
+		for (int i = 0; i < key.length(); i++) {
+			char c = text[suffix + i];
+			char k = key.charAt(i);
+			if (c != k) {
+				return c - k;
+			}
+			if (c == SEPARATOR) {
+				break;
+			}
+		}
+		return 0;
+	}
+
+	private int termOf(int position) {
+		int low = 0;
+		int high = termStarts.length - 2;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (termStarts[middle] <= position) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return low;
+	}
+
+}
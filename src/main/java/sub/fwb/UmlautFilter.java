@@ -1,20 +1,33 @@
 package sub.fwb;
 
-import java.util.List;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.TokenFilter;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
 import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
-import org.apache.lucene.analysis.CharArraySet;
 
+/**
+ * Emits the original term and its umlaut variants on the same position. The variants are enumerated lazily, one
+ * per call of incrementToken(), in the same order as created by UmlautWordMapper. Each variant is written directly
+ * into the term attribute, duplicates are skipped, and at most maxVariants terms are emitted per token. Terms
+ * without any mappable char are passed through right away.
+ *
+ * If the factory has a VariantCache, the variants of each term with mappable chars are looked up there first, and
+ * stored there after they were enumerated.
+ *
+ * The mappings and the cache can be swapped by the factory at any time. The filter takes the current ones in
+ * reset(), so a token stream that is being analyzed keeps using the old ones.
+ */
 public final class UmlautFilter extends TokenFilter {
+	public static final String PASSED_THROUGH = "passedThroughTokens";
+	public static final String EXPANDED = "expandedTokens";
+	public static final String CAPPED = "cappedTokens";
+	public static final String DUPLICATES = "suppressedDuplicates";
+
 	private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
 	private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
 	private final OffsetAttribute offsetAttr = addAttribute(OffsetAttribute.class);
@@ -22,52 +35,140 @@ public final class UmlautFilter extends TokenFilter {
 	private int startOffset = 0;
 	private int endOffset = 0;
 	private int posIncr = 0;
-	private Queue<String> terms;
 
-	private Set<String> mappingsSet = new HashSet<>();
+	private final AtomicReference<UmlautMappings> currentMappings;
+	private final AtomicReference<VariantCache> currentCache;
+	private UmlautMappings mappings;
+	private VariantCache cache;
+	private final int maxVariants;
+	private final FilterStatistics statistics;
+	private final VariantCache.Key cacheKey = new VariantCache.Key();
+	private char[][] cachedVariants = null;
+	private int nextCachedVariant = 0;
+	private boolean storeInCache = false;
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+	private long passedThrough = 0;
+	private long expanded = 0;
+	private long capped = 0;
+	private long duplicates = 0;
+
+	private final UmlautVariants variants = new UmlautVariants();
+	private long variantsCount = 0;
+	private long nextVariant = 0;
+	private final ReusableTermSet emittedVariants = new ReusableTermSet();
+
+	public UmlautFilter(TokenStream input, UmlautMappings mappings, int maxVariants, VariantCache cache,
+			FilterStatistics statistics) {
+		this(input, new AtomicReference<UmlautMappings>(mappings), maxVariants,
+				new AtomicReference<VariantCache>(cache), statistics);
+	}
 
-	public UmlautFilter(TokenStream input, CharArraySet mappings) {
+	/**
+	 * The factory must replace the cache after the mappings, see takeCurrentMappings().
+	 */
+	public UmlautFilter(TokenStream input, AtomicReference<UmlautMappings> currentMappings, int maxVariants,
+			AtomicReference<VariantCache> currentCache, FilterStatistics statistics) {
 		super(input);
 		finished = false;
 		startOffset = 0;
 		endOffset = 0;
 		posIncr = 1;
-		this.terms = new LinkedList<String>();
+		this.currentMappings = currentMappings;
+		this.currentCache = currentCache;
+		this.maxVariants = maxVariants;
+		this.statistics = statistics;
+		takeCurrentMappings();
+	}
 
-		if (mappings != null) {
-			for (Object objectMapping : mappings) {
-				String mapping = new String((char[]) objectMapping);
-				mappingsSet.add(mapping);
-			}
-		}
+	/**
+	 * The cache is read before the mappings. So if the cache is already a new one, the mappings are new, too, and
+	 * old variants can never get into a new cache. The other way round, new variants might get into an old cache,
+	 * which is harmless, since it is not used anymore.
+	 */
+	private void takeCurrentMappings() {
+		cache = currentCache.get();
+		mappings = currentMappings.get();
 	}
 
 	@Override
 	public boolean incrementToken() throws IOException {
 		while (!finished) {
-			while (terms.size() > 0) {
-				String buffer = terms.poll();
+			if (cachedVariants != null) {
+				if (nextCachedVariant < cachedVariants.length) {
+					char[] variant = cachedVariants[nextCachedVariant];
+					nextCachedVariant++;
+					termAttr.copyBuffer(variant, 0, variant.length);
+					offsetAttr.setOffset(startOffset, endOffset);
+					posIncrAttr.setPositionIncrement(posIncr);
 
-				termAttr.copyBuffer(buffer.toCharArray(), 0, buffer.length());
+					posIncr = 0;
+					return true;
+				}
+				cachedVariants = null;
+			}
+
+			while (nextVariant < variantsCount) {
+				if (emittedVariants.size() >= maxVariants) {
+					capped++;
+					nextVariant = variantsCount;
+					break;
+				}
+				variants.write(nextVariant, termAttr);
+				nextVariant++;
+				if (!emittedVariants.add(termAttr.buffer(), 0, termAttr.length())) {
+					duplicates++;
+					continue;
+				}
 				offsetAttr.setOffset(startOffset, endOffset);
 				posIncrAttr.setPositionIncrement(posIncr);
 
 				posIncr = 0;
 				return true;
 			}
+			if (storeInCache) {
+				cache.put(cacheKey, emittedVariants.toArrays());
+				storeInCache = false;
+			}
 
 			if (input.incrementToken()) {
-				String currentTerm = termAttr.toString();
 				startOffset = offsetAttr.startOffset();
 				endOffset = offsetAttr.endOffset();
 				posIncr = 1;
 
-				UmlautWordMapper mapper = new UmlautWordMapper(mappingsSet);
-				List<String> mappedWords = mapper.createMappings(currentTerm);
-
-				for (String mappedWord : mappedWords) {
-					terms.add(mappedWord);
+				boolean unchanged = !mappings.canMap(termAttr.buffer(), termAttr.length());
+				if (!unchanged && cache != null) {
+					cacheKey.set(termAttr.buffer(), 0, termAttr.length());
+					char[][] variants = cache.get(cacheKey);
+					if (variants != null) {
+						cacheHits++;
+						if (variants.length > 1) {
+							expanded++;
+							cachedVariants = variants;
+							nextCachedVariant = 0;
+							continue;
+						}
+						unchanged = true;
+					} else {
+						cacheMisses++;
+						storeInCache = true;
+					}
 				}
+				if (!unchanged && !findMatches()) {
+					unchanged = true;
+					if (storeInCache) {
+						cache.put(cacheKey, new char[][] { Arrays.copyOf(termAttr.buffer(), termAttr.length()) });
+						storeInCache = false;
+					}
+				}
+				if (unchanged) {
+					passedThrough++;
+					offsetAttr.setOffset(startOffset, endOffset);
+					posIncrAttr.setPositionIncrement(posIncr);
+					posIncr = 0;
+					return true;
+				}
+				expanded++;
 			} else {
 				finished = true;
 			}
@@ -75,11 +176,42 @@ public final class UmlautFilter extends TokenFilter {
 		return false;
 	}
 
+	private boolean findMatches() {
+		if (!variants.findMatches(mappings, termAttr)) {
+			return false;
+		}
+		emittedVariants.clear();
+		nextVariant = 0;
+		variantsCount = variants.count();
+		return true;
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		statistics.add(PASSED_THROUGH, passedThrough);
+		statistics.add(EXPANDED, expanded);
+		statistics.add(CAPPED, capped);
+		statistics.add(DUPLICATES, duplicates);
+		statistics.add(VariantCache.HITS, cacheHits);
+		statistics.add(VariantCache.MISSES, cacheMisses);
+		cacheHits = 0;
+		cacheMisses = 0;
+		passedThrough = 0;
+		expanded = 0;
+		capped = 0;
+		duplicates = 0;
+	}
+
 	@Override
 	public void reset() throws IOException {
 		super.reset();
+		takeCurrentMappings();
 		finished = false;
-		terms.clear();
+		variantsCount = 0;
+		nextVariant = 0;
+		cachedVariants = null;
+		storeInCache = false;
 		startOffset = 0;
 		endOffset = 0;
 		posIncr = 1;
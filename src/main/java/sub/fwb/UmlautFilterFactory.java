@@ -1,34 +1,147 @@
 package sub.fwb;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.lucene.analysis.CharArraySet;
 import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.util.AbstractAnalysisFactory;
+import org.apache.lucene.analysis.util.MultiTermAwareComponent;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.lucene.analysis.util.ResourceLoaderAware;
 import org.apache.lucene.analysis.util.TokenFilterFactory;
 
-public class UmlautFilterFactory extends TokenFilterFactory implements ResourceLoaderAware {
+public class UmlautFilterFactory extends TokenFilterFactory
+		implements ResourceLoaderAware, MultiTermAwareComponent, StatisticsProvider {
 
 	private String mappingsFile;
-	private CharArraySet mappings;
-	
-	
+	private boolean folding;
+	private boolean preserveOriginal;
+	private int maxVariants;
+	private boolean caching;
+	private int cacheSize;
+	private ResourceLoader loader;
+	private final AtomicReference<VariantCache> cache = new AtomicReference<>();
+	private final AtomicReference<UmlautMappings> mappings = new AtomicReference<>(UmlautMappings.compile(null));
+	private final FilterStatistics statistics = new FilterStatistics(UmlautFilter.PASSED_THROUGH,
+			UmlautFilter.EXPANDED, UmlautFilter.CAPPED, UmlautFilter.DUPLICATES, VariantCache.HITS,
+			VariantCache.MISSES, VariantCache.EVICTIONS, UmlautFoldingFilter.FOLDED);
+
 	public UmlautFilterFactory(Map<String, String> args) {
+		this(args, Integer.MAX_VALUE);
+	}
+
+	protected UmlautFilterFactory(Map<String, String> args, int defaultMaxVariants) {
 		super(args);
 		mappingsFile = get(args, "file");
+		folding = "fold".equals(get(args, "mode", Arrays.asList("expand", "fold"), "expand"));
+		preserveOriginal = getBoolean(args, "preserveOriginal", false);
+		maxVariants = getInt(args, "maxVariants", defaultMaxVariants);
+		if (maxVariants < 1) {
+			throw new IllegalArgumentException("maxVariants must be at least 1: " + maxVariants);
+		}
+		cacheSize = getInt(args, "cacheSize", 10000);
+		caching = getBoolean(args, "cache", false);
+		if (caching) {
+			cache.set(new VariantCache(cacheSize, statistics));
+		}
 	}
 
 	@Override
 	public void inform(ResourceLoader loader) throws IOException {
+		this.loader = loader;
 		if (mappingsFile != null) {
-			mappings = getWordSet(loader, mappingsFile, false);
+			mappings.set(readMappings());
+		}
+	}
+
+	private UmlautMappings readMappings() throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (String file : splitFileNames(mappingsFile)) {
+			lines.addAll(getLines(loader, file));
+		}
+		return UmlautMappingsRegistry.getMappings(mappingsFile, lines, folding);
+	}
+
+	/**
+	 * Reads the mappings file again and lets all token streams use the new mappings from their next reset() on.
+	 * The cached variants are dropped, since they were created with the old mappings.
+	 * 
+	 * @return false if there is no mappings file
+	 */
+	public synchronized boolean reloadMappings() throws IOException {
+		if (mappingsFile == null || loader == null) {
+			return false;
+		}
+		UmlautMappings newMappings = readMappings();
+		// the order matters, see UmlautFilter
+		mappings.set(newMappings);
+		if (caching) {
+			cache.set(new VariantCache(cacheSize, statistics));
 		}
+		return true;
+	}
+
+	public String getMappingsFile() {
+		return mappingsFile;
 	}
 
 	@Override
 	public TokenStream create(TokenStream ts) {
-		return new UmlautFilter(ts, mappings);
+		if (folding) {
+			return new UmlautFoldingFilter(ts, mappings, preserveOriginal, statistics);
+		}
+		return new UmlautFilter(ts, mappings, maxVariants, cache, statistics);
+	}
+
+	@Override
+	public AbstractAnalysisFactory getMultiTermComponent() {
+		return new MultiTermFactory(this);
+	}
+
+	/**
+	 * Wildcard and regex terms must be folded in the same way as the indexed terms, but they must stay one term.
+	 * In the expanding mode, they are left as they are, like before.
+	 */
+	private static class MultiTermFactory extends TokenFilterFactory {
+		private final UmlautFilterFactory outer;
+
+		private MultiTermFactory(UmlautFilterFactory outer) {
+			super(new HashMap<String, String>());
+			this.outer = outer;
+		}
+
+		@Override
+		public TokenStream create(TokenStream ts) {
+			if (outer.folding) {
+				return new UmlautFoldingFilter(ts, outer.mappings, false, outer.statistics);
+			}
+			return ts;
+		}
+	}
+
+	@Override
+	public FilterStatistics getStatistics() {
+		return statistics;
+	}
+
+	boolean isFolding() {
+		return folding;
+	}
+
+	int getMaxVariants() {
+		return maxVariants;
+	}
+
+	AtomicReference<UmlautMappings> getCurrentMappings() {
+		return mappings;
+	}
+
+	AtomicReference<VariantCache> getCurrentCache() {
+		return cache;
 	}
-}
\ No newline at end of file
+}
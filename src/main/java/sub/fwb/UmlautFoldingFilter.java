@@ -0,0 +1,142 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+import sub.fwb.UmlautMappings.Mapping;
+
+/**
+ * Replaces each mapped source in a term by the key of its group, e. g. bär -> bar, so that only one canonical
+ * term is indexed instead of all variants. The same has to happen at query time. The mappings must be compiled with
+ * UmlautMappings.compileFolding(). Optionally, the original term is kept on the same position. Like in
+ * UmlautFilter, the current mappings are taken in reset().
+ */
+public final class UmlautFoldingFilter extends TokenFilter {
+	public static final String FOLDED = "foldedTokens";
+
+	private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
+	private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
+
+	private final AtomicReference<UmlautMappings> currentMappings;
+	private UmlautMappings mappings;
+	private final boolean preserveOriginal;
+	private final FilterStatistics statistics;
+	private long passedThrough = 0;
+	private long folded = 0;
+
+	// copy of the current input term
+	private char[] termChars = new char[32];
+	private int termLength = 0;
+	private int[] matchFroms = new int[8];
+	private int[] matchTos = new int[8];
+	private Mapping[] matchMappings = new Mapping[8];
+	private int matchesCount = 0;
+	private boolean foldedTermPending = false;
+
+	public UmlautFoldingFilter(TokenStream input, UmlautMappings mappings, boolean preserveOriginal,
+			FilterStatistics statistics) {
+		this(input, new AtomicReference<UmlautMappings>(mappings), preserveOriginal, statistics);
+	}
+
+	public UmlautFoldingFilter(TokenStream input, AtomicReference<UmlautMappings> currentMappings,
+			boolean preserveOriginal, FilterStatistics statistics) {
+		super(input);
+		this.currentMappings = currentMappings;
+		this.mappings = currentMappings.get();
+		this.preserveOriginal = preserveOriginal;
+		this.statistics = statistics;
+	}
+
+	@Override
+	public boolean incrementToken() throws IOException {
+		if (foldedTermPending) {
+			foldedTermPending = false;
+			writeFoldedTerm();
+			posIncrAttr.setPositionIncrement(0);
+			return true;
+		}
+		if (!input.incrementToken()) {
+			return false;
+		}
+		if (!mappings.canMap(termAttr.buffer(), termAttr.length()) || !findMatches()) {
+			passedThrough++;
+			return true;
+		}
+		folded++;
+		if (preserveOriginal) {
+			foldedTermPending = true;
+		} else {
+			writeFoldedTerm();
+		}
+		return true;
+	}
+
+	private boolean findMatches() {
+		matchesCount = 0;
+		termLength = termAttr.length();
+		for (int i = termLength; i > 0; i--) {
+			Mapping mapping = mappings.findEndingAt(termAttr, i);
+			if (mapping != null && mapping.getReplacementsCount() > 0) {
+				int from = i - mapping.getSourceLength();
+				if (matchesCount == matchFroms.length) {
+					matchFroms = ArrayUtil.grow(matchFroms, matchesCount + 1);
+					matchTos = ArrayUtil.grow(matchTos, matchesCount + 1);
+					matchMappings = ArrayUtil.grow(matchMappings, matchesCount + 1);
+				}
+				matchFroms[matchesCount] = from;
+				matchTos[matchesCount] = i;
+				matchMappings[matchesCount] = mapping;
+				matchesCount++;
+				i = from + 1;
+			}
+		}
+		if (termLength > termChars.length) {
+			termChars = ArrayUtil.grow(termChars, termLength);
+		}
+		System.arraycopy(termAttr.buffer(), 0, termChars, 0, termLength);
+		return matchesCount > 0;
+	}
+
+	private void writeFoldedTerm() {
+		termAttr.setEmpty();
+		int pos = 0;
+		for (int m = matchesCount - 1; m >= 0; m--) {
+			appendChars(termChars, pos, matchFroms[m]);
+			char[] replacement = matchMappings[m].getReplacementChars(0);
+			appendChars(replacement, 0, replacement.length);
+			pos = matchTos[m];
+		}
+		appendChars(termChars, pos, termLength);
+	}
+
+	private void appendChars(char[] source, int from, int to) {
+		int length = termAttr.length();
+		char[] buffer = termAttr.resizeBuffer(length + to - from);
+		System.arraycopy(source, from, buffer, length, to - from);
+		termAttr.setLength(length + to - from);
+	}
+
+	@Override
+	public void end() throws IOException {
+		super.end();
+		statistics.add(UmlautFilter.PASSED_THROUGH, passedThrough);
+		statistics.add(FOLDED, folded);
+		passedThrough = 0;
+		folded = 0;
+	}
+
+	@Override
+	public void reset() throws IOException {
+		super.reset();
+		mappings = currentMappings.get();
+		foldedTermPending = false;
+		matchesCount = 0;
+	}
+
+}
@@ -0,0 +1,257 @@
+package sub.fwb;
+
+import java.util.Arrays;
+
+/**
+ * Compiled form of an umlaut mappings file. Lines like "ä:a,ae" or "U+0365:" are parsed once, the result is
+ * immutable and can be shared by all filters of a factory. A source can consist of any number of characters, and
+ * also of several code points in the U+ notation, like "U+0075U+0364:ü".
+ *
+ * The sources are stored in a trie over their code points in reverse order, so that a term can be scanned from
+ * right to left, always taking the longest source that ends at the current position. The first level of the trie
+ * is a char-indexed table. Additionally, there is a bitmap of the last chars of all sources, which is used to skip
+ * terms that cannot contain any source.
+ */
+public final class UmlautMappings {
+
+	private static final Node[] NO_NODES = new Node[0];
+
+	// first trie level for sources ending with a BMP char
+	private final Node[] nodesByLastChar;
+	// first trie level for sources ending with a supplementary code point
+	private final Node supplementaryRoot;
+	private final long[] lastCharsBitmap;
+
+	private UmlautMappings(Node[] nodesByLastChar, Node supplementaryRoot, long[] lastCharsBitmap) {
+		this.nodesByLastChar = nodesByLastChar;
+		this.supplementaryRoot = supplementaryRoot;
+		this.lastCharsBitmap = lastCharsBitmap;
+	}
+
+	public static UmlautMappings compile(Iterable<?> mappingLines) {
+		Builder builder = new Builder();
+		if (mappingLines != null) {
+			for (Object line : mappingLines) {
+				String[] sourceAndReplacements = parseLine(line);
+				String umlaut = sourceAndReplacements[0];
+				if (umlaut.length() == 0) {
+					// such sources could never be matched
+					continue;
+				}
+				builder.add(umlaut, Arrays.copyOfRange(sourceAndReplacements, 1, sourceAndReplacements.length));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Mappings for the folding mode. Only the source of a line is mapped, to the first replacement of the line, which
+	 * is the key of the group. The replacements themselves are left alone, so that words without any source are
+	 * never changed, and each line stays a group of its own. With "ä:a", bär is folded to bar, like the fully
+	 * replaced variant of the expanding mode.
+	 */
+	public static UmlautMappings compileFolding(Iterable<?> mappingLines) {
+		Builder builder = new Builder();
+		if (mappingLines != null) {
+			for (Object line : mappingLines) {
+				String[] sourceAndReplacements = parseLine(line);
+				String umlaut = sourceAndReplacements[0];
+				if (umlaut.length() == 0) {
+					continue;
+				}
+				builder.add(umlaut, new String[] { sourceAndReplacements[1] });
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * @return the source, followed by the replacements
+	 */
+	private static String[] parseLine(Object line) {
+		String mapping = line instanceof char[] ? new String((char[]) line) : line.toString();
+		String[] umlautAndReplacements = mapping.split(":");
+		String umlaut = parseSource(umlautAndReplacements[0]);
+		String[] replacements;
+		if (umlautAndReplacements.length >= 2) {
+			replacements = umlautAndReplacements[1].split(",");
+		} else {
+			replacements = new String[] { "" };
+		}
+		String[] result = new String[replacements.length + 1];
+		result[0] = umlaut;
+		System.arraycopy(replacements, 0, result, 1, replacements.length);
+		return result;
+	}
+
+	/**
+	 * Converts all code points given as U+XXXX, the rest is taken literally.
+	 */
+	private static String parseSource(String source) {
+		if (!source.startsWith("U+")) {
+			return source;
+		}
+		StringBuilder result = new StringBuilder();
+		for (String hex : source.substring(2).split("U\\+")) {
+			result.appendCodePoint(Integer.decode("0x" + hex));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Checks if any of the chars could be the end of a mapped source. If not, the term can be used as it is.
+	 */
+	public boolean canMap(char[] term, int length) {
+		long[] bitmap = lastCharsBitmap;
+		int bitmapChars = bitmap.length << 6;
+		for (int i = 0; i < length; i++) {
+			char c = term[i];
+			if (c < bitmapChars && (bitmap[c >>> 6] & (1L << c)) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Finds the longest mapped source that ends right before the given end index.
+	 *
+	 * @return the mapping or null if there is none
+	 */
+	public Mapping findEndingAt(CharSequence term, int end) {
+		int codePoint = Character.codePointBefore(term, end);
+		int pos = end - Character.charCount(codePoint);
+		Node node;
+		if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+			node = codePoint < nodesByLastChar.length ? nodesByLastChar[codePoint] : null;
+		} else {
+			node = supplementaryRoot.child(codePoint);
+		}
+		Mapping longest = null;
+		while (node != null) {
+			if (node.mapping != null) {
+				longest = node.mapping;
+			}
+			if (pos == 0 || node.childCodePoints.length == 0) {
+				break;
+			}
+			codePoint = Character.codePointBefore(term, pos);
+			pos -= Character.charCount(codePoint);
+			node = node.child(codePoint);
+		}
+		return longest;
+	}
+
+	private static final class Builder {
+		private Node[] table = NO_NODES;
+		private final Node supplementaryRoot = new Node();
+		private long[] bitmap = new long[0];
+
+		private void add(String umlaut, String[] replacements) {
+			int end = umlaut.length();
+			int codePoint = umlaut.codePointBefore(end);
+			end -= Character.charCount(codePoint);
+			Node node;
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				if (codePoint >= table.length) {
+					Node[] bigger = new Node[codePoint + 1];
+					System.arraycopy(table, 0, bigger, 0, table.length);
+					table = bigger;
+				}
+				if (table[codePoint] == null) {
+					table[codePoint] = new Node();
+				}
+				node = table[codePoint];
+			} else {
+				node = supplementaryRoot.addChild(codePoint);
+			}
+			while (end > 0) {
+				codePoint = umlaut.codePointBefore(end);
+				end -= Character.charCount(codePoint);
+				node = node.addChild(codePoint);
+			}
+			node.mapping = new Mapping(umlaut.length(), replacements);
+
+			char last = umlaut.charAt(umlaut.length() - 1);
+			if (last >>> 6 >= bitmap.length) {
+				long[] bigger = new long[(last >>> 6) + 1];
+				System.arraycopy(bitmap, 0, bigger, 0, bitmap.length);
+				bitmap = bigger;
+			}
+			bitmap[last >>> 6] |= 1L << last;
+		}
+
+		private UmlautMappings build() {
+			return new UmlautMappings(table, supplementaryRoot, bitmap);
+		}
+	}
+
+	public static final class Mapping {
+		private final int sourceLength;
+		private final String[] replacements;
+		private final char[][] replacementChars;
+
+		private Mapping(int sourceLength, String[] replacements) {
+			this.sourceLength = sourceLength;
+			this.replacements = replacements;
+			this.replacementChars = new char[replacements.length][];
+			for (int i = 0; i < replacements.length; i++) {
+				replacementChars[i] = replacements[i].toCharArray();
+			}
+		}
+
+		/**
+		 * @return the length of the source in chars, not in code points
+		 */
+		public int getSourceLength() {
+			return sourceLength;
+		}
+
+		public int getReplacementsCount() {
+			return replacements.length;
+		}
+
+		public String getReplacement(int i) {
+			return replacements[i];
+		}
+
+		public char[] getReplacementChars(int i) {
+			return replacementChars[i];
+		}
+	}
+
+	private static final class Node {
+		private Mapping mapping;
+		// the code points that can precede this node's one in a source, usually very few
+		private int[] childCodePoints = new int[0];
+		private Node[] children = NO_NODES;
+
+		private Node child(int codePoint) {
+			for (int i = 0; i < childCodePoints.length; i++) {
+				if (childCodePoints[i] == codePoint) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		private Node addChild(int codePoint) {
+			Node child = child(codePoint);
+			if (child != null) {
+				return child;
+			}
+			int count = childCodePoints.length;
+			int[] newCodePoints = new int[count + 1];
+			System.arraycopy(childCodePoints, 0, newCodePoints, 0, count);
+			newCodePoints[count] = codePoint;
+			Node[] newChildren = new Node[count + 1];
+			System.arraycopy(children, 0, newChildren, 0, count);
+			child = new Node();
+			newChildren[count] = child;
+			childCodePoints = newCodePoints;
+			children = newChildren;
+			return child;
+		}
+	}
+
+}
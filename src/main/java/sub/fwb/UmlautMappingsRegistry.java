@@ -0,0 +1,73 @@
+package sub.fwb;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * JVM-wide registry of compiled umlaut mappings. All factories that read the same mappings file with the same
+ * content, in any field and any core, share one UmlautMappings object. The key is the resource name together with a
+ * checksum of the lines, so a changed file is compiled again.
+ *
+ * The registry only holds weak references, the mappings are kept alive by the factories that use them.
+ */
+public final class UmlautMappingsRegistry {
+
+	private static final ConcurrentHashMap<String, WeakReference<UmlautMappings>> registry = new ConcurrentHashMap<>();
+
+	private UmlautMappingsRegistry() {
+	}
+
+	public static UmlautMappings getMappings(String resourceName, List<String> lines) {
+		return getMappings(resourceName, lines, false);
+	}
+
+	/**
+	 * @param folding
+	 *            if the mappings are for the folding mode, see UmlautMappings.compileFolding()
+	 */
+	public static UmlautMappings getMappings(String resourceName, List<String> lines, boolean folding) {
+		String key = (folding ? "fold:" : "expand:") + createKey(resourceName, lines);
+		WeakReference<UmlautMappings> reference = registry.get(key);
+		UmlautMappings mappings = reference == null ? null : reference.get();
+		if (mappings != null) {
+			return mappings;
+		}
+		synchronized (registry) {
+			reference = registry.get(key);
+			mappings = reference == null ? null : reference.get();
+			if (mappings == null) {
+				removeCollected();
+				mappings = folding ? UmlautMappings.compileFolding(lines) : UmlautMappings.compile(lines);
+				registry.put(key, new WeakReference<>(mappings));
+			}
+			return mappings;
+		}
+	}
+
+	private static String createKey(String resourceName, List<String> lines) {
+		CRC32 checksum = new CRC32();
+		long length = 0;
+		for (String line : lines) {
+			byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+			checksum.update(bytes);
+			checksum.update('\n');
+			length += bytes.length + 1;
+		}
+		return resourceName + ":" + Long.toHexString(checksum.getValue()) + ":" + length;
+	}
+
+	private static void removeCollected() {
+		Iterator<Map.Entry<String, WeakReference<UmlautMappings>>> entries = registry.entrySet().iterator();
+		while (entries.hasNext()) {
+			if (entries.next().getValue().get() == null) {
+				entries.remove();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+import org.apache.solr.analysis.TokenizerChain;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.RequestHandlerBase;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.FieldType;
+
+/**
+ * Reads the mapping files of all UmlautFilterFactories in the schema again, without reloading the core, e. g.:
+ * 
+ * <requestHandler name="/admin/fwbreload" class="sub.fwb.UmlautMappingsReloadHandler" />
+ * 
+ * Token streams that are being analyzed keep the old mappings, the new ones are used for the next documents and
+ * queries. Changed mappings on the index side only affect newly indexed documents.
+ */
+public class UmlautMappingsReloadHandler extends RequestHandlerBase {
+
+	@Override
+	public void handleRequestBody(SolrQueryRequest req, SolrQueryResponse rsp) throws Exception {
+		rsp.add("reloadedMappings", reload(req.getSchema().getFieldTypes()));
+	}
+
+	/**
+	 * @return the reloaded mapping files, e. g. "text/index" -> "umlaut_mappings.txt"
+	 */
+	NamedList<Object> reload(Map<String, FieldType> fieldTypes) throws IOException {
+		NamedList<Object> reloaded = new SimpleOrderedMap<>();
+		for (Map.Entry<String, FieldType> entry : fieldTypes.entrySet()) {
+			FieldType fieldType = entry.getValue();
+			reload(reloaded, entry.getKey() + "/index", fieldType.getIndexAnalyzer());
+			reload(reloaded, entry.getKey() + "/query", fieldType.getQueryAnalyzer());
+		}
+		return reloaded;
+	}
+
+	private void reload(NamedList<Object> reloaded, String analyzerName, Analyzer analyzer) throws IOException {
+		if (!(analyzer instanceof TokenizerChain)) {
+			return;
+		}
+		for (TokenFilterFactory factory : ((TokenizerChain) analyzer).getTokenFilterFactories()) {
+			if (factory instanceof UmlautFilterFactory) {
+				UmlautFilterFactory umlautFactory = (UmlautFilterFactory) factory;
+				if (umlautFactory.reloadMappings()) {
+					reloaded.add(analyzerName, umlautFactory.getMappingsFile());
+				}
+			}
+		}
+	}
+
+	@Override
+	public String getDescription() {
+		return "Reloads the umlaut mappings of the FWB filter factories";
+	}
+
+}
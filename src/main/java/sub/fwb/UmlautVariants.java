@@ -0,0 +1,122 @@
+package sub.fwb;
+
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.ArrayUtil;
+
+import sub.fwb.UmlautMappings.Mapping;
+
+/**
+ * The umlaut variants of one term, in the same order as created by UmlautWordMapper. The sources in the term are
+ * found once, and then each variant can be written by its index, without creating the previous ones. An instance
+ * is meant to be reused for all terms of a filter.
+ */
+final class UmlautVariants {
+
+	// copy of the current term
+	private char[] termChars = new char[32];
+	private int termLength = 0;
+	// the found sources from right to left, each with the number of variants created up to and including it
+	private int[] matchFroms = new int[8];
+	private int[] matchTos = new int[8];
+	private Mapping[] matchMappings = new Mapping[8];
+	private long[] variantsUpToMatch = new long[8];
+	private int matchesCount = 0;
+	// the choice for each match: 0 is the original source, i is the i-th replacement
+	private int[] choices = new int[8];
+
+	/**
+	 * @return false if the term does not contain any source, then there are no variants
+	 */
+	boolean findMatches(UmlautMappings mappings, CharSequence term) {
+		matchesCount = 0;
+		termLength = term.length();
+		for (int i = termLength; i > 0; i--) {
+			Mapping mapping = mappings.findEndingAt(term, i);
+			if (mapping != null) {
+				int from = i - mapping.getSourceLength();
+				addMatch(from, i, mapping);
+				i = from + 1;
+			}
+		}
+		if (matchesCount == 0) {
+			return false;
+		}
+
+		if (termLength > termChars.length) {
+			termChars = ArrayUtil.grow(termChars, termLength);
+		}
+		for (int i = 0; i < termLength; i++) {
+			termChars[i] = term.charAt(i);
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of variants including the original term, or Long.MAX_VALUE if there are even more
+	 */
+	long count() {
+		return matchesCount == 0 ? 1 : variantsUpToMatch[matchesCount - 1];
+	}
+
+	private void addMatch(int from, int to, Mapping mapping) {
+		if (matchesCount == matchFroms.length) {
+			matchFroms = ArrayUtil.grow(matchFroms, matchesCount + 1);
+			matchTos = ArrayUtil.grow(matchTos, matchesCount + 1);
+			matchMappings = ArrayUtil.grow(matchMappings, matchesCount + 1);
+			variantsUpToMatch = ArrayUtil.grow(variantsUpToMatch, matchesCount + 1);
+			choices = ArrayUtil.grow(choices, matchesCount + 1);
+		}
+		long variantsBefore = matchesCount == 0 ? 1 : variantsUpToMatch[matchesCount - 1];
+		long factor = 1 + mapping.getReplacementsCount();
+		matchFroms[matchesCount] = from;
+		matchTos[matchesCount] = to;
+		matchMappings[matchesCount] = mapping;
+		// saturate instead of overflowing, such numbers can only be reached with a cap anyway
+		variantsUpToMatch[matchesCount] = variantsBefore > Long.MAX_VALUE / factor ? Long.MAX_VALUE
+				: variantsBefore * factor;
+		matchesCount++;
+	}
+
+	/**
+	 * UmlautWordMapper appends, for each match, all replacements of all previous variants to the list. So a variant
+	 * index below the number of variants before a match means that the match keeps its original source. Otherwise,
+	 * the rest of the index encodes the previous variant and the chosen replacement.
+	 */
+	void write(long variantIndex, CharTermAttribute termAttr) {
+		long index = variantIndex;
+		for (int m = matchesCount - 1; m >= 0; m--) {
+			long variantsBefore = m == 0 ? 1 : variantsUpToMatch[m - 1];
+			if (index < variantsBefore) {
+				choices[m] = 0;
+			} else {
+				int replacementsCount = matchMappings[m].getReplacementsCount();
+				long rest = index - variantsBefore;
+				choices[m] = (int) (rest % replacementsCount) + 1;
+				index = rest / replacementsCount;
+			}
+		}
+
+		termAttr.setEmpty();
+		int pos = 0;
+		for (int m = matchesCount - 1; m >= 0; m--) {
+			int from = matchFroms[m];
+			appendChars(termAttr, termChars, pos, from);
+			if (choices[m] == 0) {
+				pos = from;
+			} else {
+				char[] replacement = matchMappings[m].getReplacementChars(choices[m] - 1);
+				appendChars(termAttr, replacement, 0, replacement.length);
+				pos = matchTos[m];
+			}
+		}
+		appendChars(termAttr, termChars, pos, termLength);
+	}
+
+	private static void appendChars(CharTermAttribute termAttr, char[] source, int from, int to) {
+		int length = termAttr.length();
+		char[] buffer = termAttr.resizeBuffer(length + to - from);
+		System.arraycopy(source, from, buffer, length, to - from);
+		termAttr.setLength(length + to - from);
+	}
+
+}
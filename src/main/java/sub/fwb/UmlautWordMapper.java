@@ -1,75 +1,49 @@
 package sub.fwb;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
+import sub.fwb.UmlautMappings.Mapping;
+
 public class UmlautWordMapper {
 
-	private Map<String, String[]> charMappings = new HashMap<>();
-	private List<String> mappedWords = new ArrayList<String>();
+	private final UmlautMappings mappings;
+	private List<String> mappedWords;
 	private String term;
 
 	public UmlautWordMapper(Set<String> mappingsSet) {
-		for (String mapping : mappingsSet) {
-			String[] umlautAndReplacements = mapping.split(":");
-			String umlaut = umlautAndReplacements[0];
-			if (umlaut.startsWith("U+")) {
-				String hex = "0x" + umlaut.substring(2);
-				umlaut = Character.toString((char)(int)Integer.decode(hex));
-			}
-			if (umlautAndReplacements.length >= 2) {
-				String replacements = umlautAndReplacements[1];
-				charMappings.put(umlaut, replacements.split(","));
-			} else {
-				charMappings.put(umlaut, new String[]{""});
-			}
-		}
+		this(UmlautMappings.compile(mappingsSet));
+	}
+
+	public UmlautWordMapper(UmlautMappings mappings) {
+		this.mappings = mappings;
 	}
 
 	public List<String> createMappings(String currentTerm) {
 		term = currentTerm;
+		mappedWords = new ArrayList<String>();
 		mappedWords.add(term);
 
-		int termLength = term.length();
-		for (int i = termLength - 1; i >= 0; i--) {
-			if (i >= 1) {
-				String twoCh = term.substring(i - 1, i + 1);
-				if (isUmlaut(twoCh)) {
-					replaceUmlautAndAddToList(i - 1, i + 1);
-					i--;
-					continue;
-				}
-			}
-			String ch = term.substring(i, i + 1);
-			if (isUmlaut(ch)) {
-				replaceUmlautAndAddToList(i, i + 1);
+		for (int i = term.length(); i > 0; i--) {
+			Mapping mapping = mappings.findEndingAt(term, i);
+			if (mapping != null) {
+				replaceUmlautAndAddToList(i - mapping.getSourceLength(), i, mapping);
+				i -= mapping.getSourceLength() - 1;
 			}
 		}
 
 		return mappedWords;
 	}
 
-	private boolean isUmlaut(String ch) {
-		if (charMappings.containsKey(ch)) {
-			return true;
-		}
-		return false;
-	}
-
-	private void replaceUmlautAndAddToList(int from, int to) {
+	private void replaceUmlautAndAddToList(int from, int to, Mapping mapping) {
 		List<String> wordsToAdd = new ArrayList<>();
 
-		String umlaut = term.substring(from, to);
-		String[] replacements = charMappings.get(umlaut);
-
 		for (String wordFromList : mappedWords) {
 			String prefix = wordFromList.substring(0, from);
 			String postfix = wordFromList.substring(to);
-			for (String replacement : replacements) {
-				wordsToAdd.add(prefix + replacement + postfix);
+			for (int i = 0; i < mapping.getReplacementsCount(); i++) {
+				wordsToAdd.add(prefix + mapping.getReplacement(i) + postfix);
 			}
 		}
 		mappedWords.addAll(wordsToAdd);
@@ -0,0 +1,169 @@
+package sub.fwb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.util.ArrayUtil;
+
+/**
+ * Size-bounded cache from terms to their precomputed variants, shared by all filters of a factory. It is split
+ * into segments, each of them a synchronized LRU map, so that concurrent indexing threads seldom wait for each
+ * other.
+ *
+ * Lookups are done with a reusable Key that each filter owns, so a cache hit does not create any objects.
+ */
+public class VariantCache {
+
+	public static final String HITS = "cacheHits";
+	public static final String MISSES = "cacheMisses";
+	public static final String EVICTIONS = "cacheEvictions";
+
+	private final Segment[] segments;
+	private final FilterStatistics statistics;
+
+	public VariantCache(int maxSize, FilterStatistics statistics) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be at least 1: " + maxSize);
+		}
+		this.statistics = statistics;
+		int segmentsCount = maxSize >= 64 ? 16 : 1;
+		segments = new Segment[segmentsCount];
+		int segmentSize = (maxSize + segmentsCount - 1) / segmentsCount;
+		for (int i = 0; i < segmentsCount; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	public char[][] get(Key key) {
+		Segment segment = segmentFor(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	/**
+	 * Stores a copy of the key, so the given one can be reused.
+	 */
+	public void put(Key key, char[][] variants) {
+		Segment segment = segmentFor(key);
+		Key storedKey = key.copy();
+		synchronized (segment) {
+			segment.put(storedKey, variants);
+		}
+	}
+
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment segmentFor(Key key) {
+		return segments[(key.hash >>> 8) & (segments.length - 1)];
+	}
+
+	private class Segment extends LinkedHashMap<Key, char[][]> {
+		private static final long serialVersionUID = 1L;
+		private final int maxSize;
+
+		private Segment(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, char[][]> eldest) {
+			if (size() > maxSize) {
+				statistics.add(EVICTIONS, 1);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	public static final class Key {
+		private char[] chars;
+		private int length;
+		private int hash;
+
+		public Key() {
+			chars = new char[16];
+		}
+
+		private Key(char[] chars, int length, int hash) {
+			this.chars = chars;
+			this.length = length;
+			this.hash = hash;
+		}
+
+		public Key set(char[] buffer, int offset, int newLength) {
+			if (newLength > chars.length) {
+				chars = ArrayUtil.grow(chars, newLength);
+			}
+			System.arraycopy(buffer, offset, chars, 0, newLength);
+			length = newLength;
+			int h = 0;
+			for (int i = 0; i < newLength; i++) {
+				h = 31 * h + chars[i];
+			}
+			hash = h ^ (h >>> 16);
+			return this;
+		}
+
+		public Key set(CharSequence term) {
+			int newLength = term.length();
+			if (newLength > chars.length) {
+				chars = ArrayUtil.grow(chars, newLength);
+			}
+			int h = 0;
+			for (int i = 0; i < newLength; i++) {
+				chars[i] = term.charAt(i);
+				h = 31 * h + chars[i];
+			}
+			length = newLength;
+			hash = h ^ (h >>> 16);
+			return this;
+		}
+
+		private Key copy() {
+			char[] copiedChars = new char[length];
+			System.arraycopy(chars, 0, copiedChars, 0, length);
+			return new Key(copiedChars, length, hash);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key otherKey = (Key) other;
+			if (otherKey.hash != hash || otherKey.length != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (otherKey.chars[i] != chars[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -6,6 +6,13 @@ public class ParseUtil {
 
 	public static final String EXACT = "_exakt";
 
+	// lookup tables indexed by char, so that the helpers below need no regular expressions
+	private static final String SPECIAL_CHARS = "‒&<>′`″”∣%«»‛⅓⅙⅔·⅕#˄˚{}¼¾©@‚°=½§…℔₰¶⸗˺˹„“+–!;›‹.,’·‘'%";
+	private static final boolean[] SPECIAL = table(SPECIAL_CHARS);
+	private static final boolean[] ESCAPED = table("|()[]-");
+	private static final boolean[] TRIMMED_AT_FRONT = table(",)/‹.]- ;:");
+	private static final boolean[] TRIMMED_AT_BACK = table("(,/[- ;:");
+
 	// This is not supposed to happen anymore
 	@Deprecated
 	public static void checkIfOneWord(String complexPhrase) throws ParseException {
@@ -50,7 +57,65 @@ public class ParseUtil {
 	}
 
 	public static String removeSpecialChars(String str) {
-		return str.replaceAll("[‒&<>′`″”∣%«»‛⅓⅙⅔·⅕#˄˚{}¼¾©@‚°=½§…℔₰¶⸗˺˹„“+–!;›‹\\.,’·‘'%]+", "");
+		int first = 0;
+		while (first < str.length() && !isSpecialChar(str.charAt(first))) {
+			first++;
+		}
+		if (first == str.length()) {
+			return str;
+		}
+		StringBuilder removed = new StringBuilder(str.length());
+		removed.append(str, 0, first);
+		for (int i = first + 1; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (!isSpecialChar(c)) {
+				removed.append(c);
+			}
+		}
+		return removed.toString();
+	}
+
+	/**
+	 * Puts a backslash in front of the chars that Solr would take as syntax, and removes the special chars.
+	 */
+	public static String escapeSpecialChars(String str) {
+		StringBuilder escaped = new StringBuilder(str.length() + 8);
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (isSpecialChar(c)) {
+				continue;
+			}
+			if (isIn(c, ESCAPED)) {
+				escaped.append('\\');
+			}
+			escaped.append(c);
+		}
+		return escaped.toString();
+	}
+
+	public static boolean isSpecialChar(char c) {
+		return isIn(c, SPECIAL);
+	}
+
+	/**
+	 * Reverses a string that may contain backslash escapes, e. g. imbis\-gast -> tsag\-sibmi. Escaped chars and
+	 * surrogate pairs are kept together.
+	 */
+	public static String reverseEscaped(String escaped) {
+		StringBuilder reversed = new StringBuilder(escaped.length());
+		int end = escaped.length();
+		int i = 0;
+		while (i < end) {
+			int unitLength;
+			if (escaped.charAt(i) == '\\' && i + 1 < end) {
+				unitLength = 1 + Character.charCount(escaped.codePointAt(i + 1));
+			} else {
+				unitLength = Character.charCount(escaped.codePointAt(i));
+			}
+			reversed.insert(0, escaped, i, i + unitLength);
+			i += unitLength;
+		}
+		return reversed.toString();
 	}
 
 	public static String removeParensAndPipe(String str) {
@@ -63,36 +128,31 @@ public class ParseUtil {
 	}
 
 	public static String trimSpecialChars(String snippet) {
-		String[] front = { ",", ")", "/", "‹", ".", "]", "-", " ", ";", ":" };
-		String[] back = { "(", ",", "/", "[", "-", " ", ";", ":" };
-		frontwhile:
-		while (true) {
-			for (String f : front) {
-				if (snippet.startsWith(f)) {
-					snippet = snippet.substring(1);
-				}
-			}
-			for (String f : front) {
-				if (snippet.startsWith(f)) {
-					continue frontwhile;
-				}
-			}
-			break;
+		int start = 0;
+		int end = snippet.length();
+		while (start < end && isIn(snippet.charAt(start), TRIMMED_AT_FRONT)) {
+			start++;
 		}
-		backwhile:
-		while (true) {
-			for (String b : back) {
-				if (snippet.endsWith(b)) {
-					snippet = snippet.substring(0, snippet.length() - 1);
-				}
-			}
-			for (String b : back) {
-				if (snippet.endsWith(b)) {
-					continue backwhile;
-				}
-			}
-			break;
+		while (end > start && isIn(snippet.charAt(end - 1), TRIMMED_AT_BACK)) {
+			end--;
 		}
-		return snippet;
+		return snippet.substring(start, end);
+	}
+
+	// one entry for each char up to the highest one in the string
+	private static boolean[] table(String chars) {
+		char max = 0;
+		for (int i = 0; i < chars.length(); i++) {
+			max = (char) Math.max(max, chars.charAt(i));
+		}
+		boolean[] table = new boolean[max + 1];
+		for (int i = 0; i < chars.length(); i++) {
+			table[chars.charAt(i)] = true;
+		}
+		return table;
+	}
+
+	private static boolean isIn(char c, boolean[] table) {
+		return c < table.length && table[c];
 	}
 }
@@ -0,0 +1,41 @@
+package sub.fwb.parse;
+
+import java.util.List;
+
+import sub.fwb.parse.tokens.QueryToken;
+
+/**
+ * A user query after tokenizing and parsing, before it is turned into a query for Solr.
+ */
+public final class ParsedQuery {
+
+	private final List<QueryToken> tokens;
+	// null if there are no tokens
+	private final QueryNode root;
+	private final QueryFields fields;
+	private final boolean exactSearch;
+
+	public ParsedQuery(List<QueryToken> tokens, QueryNode root, QueryFields fields, boolean exactSearch) {
+		this.tokens = tokens;
+		this.root = root;
+		this.fields = fields;
+		this.exactSearch = exactSearch;
+	}
+
+	public List<QueryToken> getTokens() {
+		return tokens;
+	}
+
+	public QueryNode getRoot() {
+		return root;
+	}
+
+	public QueryFields getFields() {
+		return fields;
+	}
+
+	public boolean isExactSearch() {
+		return exactSearch;
+	}
+
+}
@@ -0,0 +1,115 @@
+package sub.fwb.parse;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The search fields of the qf parameter, e. g. "lemma^1000 zitat^50", prepared for the query tokens. Objects of
+ * this class are immutable and can be shared by all requests with the same qf.
+ */
+public final class QueryFields {
+
+	private final String solrFieldEnding;
+	// null if infixes are searched with leading wildcards
+	private final String infixFieldEnding;
+	// null if word ends are not searched in fields with reversed terms
+	private final String reversedFieldEnding;
+	// field name -> boost, e. g. lemma -> ^1000, in the order of the qf
+	private final Map<String, String> boosts;
+	// field name -> empty value, to be filled with the query for each facet, in the order of the qf
+	private final Map<String, String> mapForFacetQueries;
+
+	public QueryFields(String qfWithBoosts, String solrFieldEnding) {
+		this(qfWithBoosts, solrFieldEnding, null);
+	}
+
+	/**
+	 * @param infixFieldEnding
+	 *            ending of the fields that contain all suffixes of the terms, see SuffixFilterFactory, or null
+	 */
+	public QueryFields(String qfWithBoosts, String solrFieldEnding, String infixFieldEnding) {
+		this(qfWithBoosts, solrFieldEnding, infixFieldEnding, null);
+	}
+
+	/**
+	 * @param reversedFieldEnding
+	 *            ending of the fields that contain the reversed terms, see solr.ReverseStringFilterFactory, or null
+	 */
+	public QueryFields(String qfWithBoosts, String solrFieldEnding, String infixFieldEnding,
+			String reversedFieldEnding) {
+		this.solrFieldEnding = solrFieldEnding;
+		this.infixFieldEnding = infixFieldEnding;
+		this.reversedFieldEnding = reversedFieldEnding;
+		Map<String, String> boostsMap = new LinkedHashMap<String, String>();
+		Map<String, String> facetMap = new LinkedHashMap<String, String>();
+		boostsMap.put("artikel" + solrFieldEnding, "");
+		String[] fields = qfWithBoosts.trim().split("\\s+");
+		for (String fieldWithBoost : fields) {
+			String fieldName = fieldWithBoost.split("\\^")[0];
+			String boostValue = "^" + fieldWithBoost.split("\\^")[1];
+			boostsMap.put(fieldName, boostValue);
+			facetMap.put(fieldName, "");
+		}
+		boosts = Collections.unmodifiableMap(boostsMap);
+		mapForFacetQueries = Collections.unmodifiableMap(facetMap);
+	}
+
+	public String getSolrFieldEnding() {
+		return solrFieldEnding;
+	}
+
+	public Map<String, String> getBoosts() {
+		return boosts;
+	}
+
+	public Map<String, String> getMapForFacetQueries() {
+		return mapForFacetQueries;
+	}
+
+	/**
+	 * @return true if the pattern is not searched with a leading wildcard in the given field, but in one of the
+	 *         companion fields
+	 */
+	public boolean isRewritten(String pattern) {
+		return isForReversedField(pattern) || isForInfixField(pattern);
+	}
+
+	/**
+	 * @return e. g. artikel_reversed:sibmi* for *imbis, artikel_suffix:imbis* for *imbis*, or artikel:*imbis* if
+	 *         there are no companion fields
+	 */
+	public String fieldQuery(String field, String pattern) {
+		return fieldFor(field, pattern) + ":" + patternFor(pattern);
+	}
+
+	public String fieldFor(String field, String pattern) {
+		if (isForReversedField(pattern)) {
+			return field + reversedFieldEnding;
+		} else if (isForInfixField(pattern)) {
+			return field + infixFieldEnding;
+		}
+		return field;
+	}
+
+	public String patternFor(String pattern) {
+		if (isForReversedField(pattern)) {
+			return ParseUtil.reverseEscaped(pattern.substring(1)) + "*";
+		} else if (isForInfixField(pattern)) {
+			return pattern.substring(1);
+		}
+		return pattern;
+	}
+
+	// *imbis* or *imbis
+	private boolean isForInfixField(String pattern) {
+		return infixFieldEnding != null && pattern.length() > 1 && pattern.charAt(0) == '*';
+	}
+
+	// *imbis, but not *imbis*
+	private boolean isForReversedField(String pattern) {
+		return reversedFieldEnding != null && pattern.length() > 1 && pattern.charAt(0) == '*'
+				&& pattern.charAt(pattern.length() - 1) != '*';
+	}
+
+}
@@ -0,0 +1,236 @@
+package sub.fwb.parse;
+
+import org.apache.solr.parser.ParseException;
+
+/**
+ * Splits a user query into words at white space and classifies each word in a scan over its characters, without
+ * regular expressions. Leading parens and unmatched trailing parens are cut off the word and only counted.
+ */
+final class QueryLexer {
+
+	enum Kind {
+		OR, AND, NOT, PAREN_LEFT, PAREN_RIGHT, REGEX, ONE_WORD_PHRASE, PHRASE_START, PHRASE_END, WORD
+	}
+
+	private static final int MAX_WORD_LENGTH = 50;
+
+	private final String query;
+	private final int end;
+	private int position;
+
+	private String word;
+	private Kind kind;
+	private int leftParens;
+	private int rightParens;
+
+	QueryLexer(String query) {
+		this.query = query;
+		int start = 0;
+		int trimmedEnd = query.length();
+		while (start < trimmedEnd && query.charAt(start) <= ' ') {
+			start++;
+		}
+		while (trimmedEnd > start && query.charAt(trimmedEnd - 1) <= ' ') {
+			trimmedEnd--;
+		}
+		position = start;
+		end = trimmedEnd;
+	}
+
+	/**
+	 * Moves to the next word that contains other than special characters.
+	 */
+	boolean next() throws ParseException {
+		while (position < end) {
+			while (position < end && isWhitespace(query.charAt(position))) {
+				position++;
+			}
+			int wordStart = position;
+			int ordinaryChars = 0;
+			while (position < end && !isWhitespace(query.charAt(position))) {
+				if (!ParseUtil.isSpecialChar(query.charAt(position))) {
+					ordinaryChars++;
+				}
+				position++;
+			}
+			if (ordinaryChars == 0) {
+				continue;
+			} else if (ordinaryChars > MAX_WORD_LENGTH) {
+				throw new ParseException("Suchanfrage zu lang: " + query.substring(wordStart, wordStart + 15) + "...");
+			}
+			readWord(wordStart, position);
+			return true;
+		}
+		return false;
+	}
+
+	String word() {
+		return word;
+	}
+
+	Kind kind() {
+		return kind;
+	}
+
+	int leftParens() {
+		return leftParens;
+	}
+
+	int rightParens() {
+		return rightParens;
+	}
+
+	private void readWord(int from, int to) {
+		leftParens = 0;
+		rightParens = 0;
+		int wordFrom = from;
+		while (to - wordFrom > 1 && query.charAt(wordFrom) == '(') {
+			leftParens++;
+			wordFrom++;
+		}
+		int wordTo = to;
+		boolean isRightParen = to - from == 1 && query.charAt(from) == ')';
+		if (!isRightParen && endsWithParen(from, to)) {
+			int opening = 0;
+			int closing = 0;
+			for (int i = wordFrom; i < wordTo; i++) {
+				char c = query.charAt(i);
+				if (c == '(') {
+					opening++;
+				} else if (c == ')') {
+					closing++;
+				}
+			}
+			while (opening != closing) {
+				char c = query.charAt(wordTo - 1);
+				if (c == '(') {
+					opening--;
+				} else if (c == ')') {
+					closing--;
+				}
+				wordTo--;
+				rightParens++;
+			}
+		}
+		word = query.substring(wordFrom, wordTo);
+		kind = classify(word);
+	}
+
+	// legatar(ius) -> legatarius
+	// legatar(ius)) -> legatarius)
+	// ((legatar(ius) -> ((legatarius
+	private boolean endsWithParen(int from, int to) {
+		int parensInFront = from;
+		while (parensInFront < to && query.charAt(parensInFront) == '(') {
+			parensInFront++;
+		}
+		int innerLeftParen = indexOf('(', parensInFront, to);
+		if (innerLeftParen < 0) {
+			return query.charAt(to - 1) == ')';
+		}
+		int firstRightParen = indexOf(')', from, to);
+		for (int i = to - 1; i >= from; i--) {
+			if (i != innerLeftParen && i != firstRightParen) {
+				return query.charAt(i) == ')';
+			}
+		}
+		return false;
+	}
+
+	private int indexOf(char c, int from, int to) {
+		for (int i = from; i < to; i++) {
+			if (query.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static Kind classify(String q) {
+		if ("OR".equals(q)) {
+			return Kind.OR;
+		} else if ("AND".equals(q)) {
+			return Kind.AND;
+		} else if ("NOT".equals(q)) {
+			return Kind.NOT;
+		} else if ("(".equals(q)) {
+			return Kind.PAREN_LEFT;
+		} else if (")".equals(q)) {
+			return Kind.PAREN_RIGHT;
+		}
+		int last = q.length() - 1;
+		int firstSlash = -1;
+		int firstQuote = -1;
+		int lastQuote = -1;
+		int firstColon = -1;
+		int lastColon = -1;
+		for (int i = 0; i <= last; i++) {
+			char c = q.charAt(i);
+			if (c == '/' && firstSlash < 0) {
+				firstSlash = i;
+			} else if (c == '"') {
+				if (firstQuote < 0) {
+					firstQuote = i;
+				}
+				lastQuote = i;
+			} else if (c == ':') {
+				if (firstColon < 0) {
+					firstColon = i;
+				}
+				lastColon = i;
+			}
+		}
+		if (last < 0) {
+			return Kind.WORD;
+		}
+		char firstChar = q.charAt(0);
+		char lastChar = q.charAt(last);
+		if (lastChar == '/' && firstSlash < last) {
+			return Kind.REGEX;
+		} else if (lastChar == '"' && firstQuote < last) {
+			return Kind.ONE_WORD_PHRASE;
+		}
+		boolean startOfPhrase = firstChar == '"' && lastChar != '"';
+		// lemma:"imbis, but not lemma:"imbis:gast or lemma:"imbis"gast
+		boolean startOfPrefixedPhrase = firstColon > 0 && lastColon == firstColon && firstQuote == firstColon + 1
+				&& lastQuote == firstQuote && last > firstQuote;
+		if (startOfPhrase || startOfPrefixedPhrase) {
+			return Kind.PHRASE_START;
+		} else if (lastChar == '"') {
+			return Kind.PHRASE_END;
+		}
+		return Kind.WORD;
+	}
+
+	/**
+	 * Checks for a search field in front of the search string, e. g. lemma:imbis.
+	 */
+	static boolean hasPrefix(String tokenString) {
+		int colon = 0;
+		while (colon < tokenString.length() && isFieldNameChar(tokenString.charAt(colon))) {
+			colon++;
+		}
+		if (colon == 0 || colon == tokenString.length() || tokenString.charAt(colon) != ':') {
+			return false;
+		}
+		for (int i = colon + 1; i < tokenString.length(); i++) {
+			if (isLineTerminator(tokenString.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isFieldNameChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+	}
+
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+}
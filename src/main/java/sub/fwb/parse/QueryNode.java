@@ -0,0 +1,164 @@
+package sub.fwb.parse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.parser.ParseException;
+
+/**
+ * Node of the expression tree that QueryParser builds from the query tokens. The search tokens themselves are
+ * referenced by their position in the token list, so that their queries only have to be created once.
+ */
+public abstract class QueryNode {
+
+	/**
+	 * Appends the query for Solr. Every NOT is put into parens together with its operand. If parensAroundAnds is
+	 * set, every AND adds a pair of parens around the operands that are connected by AND, so that they are grouped
+	 * before any OR.
+	 */
+	public abstract void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds);
+
+	/**
+	 * Walks the tree bottom-up, the visitor gets the results for the operands of each node.
+	 */
+	public abstract <T> T accept(Visitor<T> visitor) throws ParseException;
+
+	public interface Visitor<T> {
+		T visitSearchString(int tokenIndex) throws ParseException;
+
+		/**
+		 * @param inner
+		 *            null for ()
+		 */
+		T visitGroup(T inner) throws ParseException;
+
+		T visitNot(T operand) throws ParseException;
+
+		T visitAnd(List<T> operands) throws ParseException;
+
+		T visitOr(List<T> operands) throws ParseException;
+	}
+
+	private static <T> List<T> acceptAll(List<QueryNode> nodes, Visitor<T> visitor) throws ParseException {
+		List<T> results = new ArrayList<>(nodes.size());
+		for (QueryNode node : nodes) {
+			results.add(node.accept(visitor));
+		}
+		return results;
+	}
+
+	static final class Leaf extends QueryNode {
+		private final int tokenIndex;
+
+		Leaf(int tokenIndex) {
+			this.tokenIndex = tokenIndex;
+		}
+
+		@Override
+		public void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds) {
+			query.append(tokenQueries[tokenIndex]);
+		}
+
+		@Override
+		public <T> T accept(Visitor<T> visitor) throws ParseException {
+			return visitor.visitSearchString(tokenIndex);
+		}
+	}
+
+	static final class Group extends QueryNode {
+		// null for ()
+		private final QueryNode inner;
+
+		Group(QueryNode inner) {
+			this.inner = inner;
+		}
+
+		@Override
+		public void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds) {
+			query.append('(');
+			if (inner != null) {
+				inner.writeQuery(query, tokenQueries, parensAroundAnds);
+			}
+			query.append(") ");
+		}
+
+		@Override
+		public <T> T accept(Visitor<T> visitor) throws ParseException {
+			return visitor.visitGroup(inner == null ? null : inner.accept(visitor));
+		}
+	}
+
+	static final class Not extends QueryNode {
+		private final QueryNode operand;
+
+		Not(QueryNode operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds) {
+			query.append("(NOT ");
+			operand.writeQuery(query, tokenQueries, parensAroundAnds);
+			query.append(") ");
+		}
+
+		@Override
+		public <T> T accept(Visitor<T> visitor) throws ParseException {
+			return visitor.visitNot(operand.accept(visitor));
+		}
+	}
+
+	static final class And extends QueryNode {
+		private final List<QueryNode> operands;
+
+		And(List<QueryNode> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds) {
+			int parens = parensAroundAnds ? operands.size() - 1 : 0;
+			for (int i = 0; i < parens; i++) {
+				query.append('(');
+			}
+			for (int i = 0; i < operands.size(); i++) {
+				if (i > 0) {
+					query.append("AND ");
+				}
+				operands.get(i).writeQuery(query, tokenQueries, parensAroundAnds);
+			}
+			for (int i = 0; i < parens; i++) {
+				query.append(") ");
+			}
+		}
+
+		@Override
+		public <T> T accept(Visitor<T> visitor) throws ParseException {
+			return visitor.visitAnd(acceptAll(operands, visitor));
+		}
+	}
+
+	static final class Or extends QueryNode {
+		private final List<QueryNode> operands;
+
+		Or(List<QueryNode> operands) {
+			this.operands = operands;
+		}
+
+		@Override
+		public void writeQuery(StringBuilder query, String[] tokenQueries, boolean parensAroundAnds) {
+			for (int i = 0; i < operands.size(); i++) {
+				if (i > 0) {
+					query.append("OR ");
+				}
+				operands.get(i).writeQuery(query, tokenQueries, parensAroundAnds);
+			}
+		}
+
+		@Override
+		public <T> T accept(Visitor<T> visitor) throws ParseException {
+			return visitor.visitOr(acceptAll(operands, visitor));
+		}
+	}
+
+}
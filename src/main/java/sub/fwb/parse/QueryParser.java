@@ -0,0 +1,129 @@
+package sub.fwb.parse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.apache.solr.parser.ParseException;
+
+import sub.fwb.parse.tokens.OperatorAnd;
+import sub.fwb.parse.tokens.OperatorNot;
+import sub.fwb.parse.tokens.OperatorOr;
+import sub.fwb.parse.tokens.ParenthesisLeft;
+import sub.fwb.parse.tokens.ParenthesisRight;
+import sub.fwb.parse.tokens.QueryToken;
+import sub.fwb.parse.tokens.QueryTokenSearchString;
+
+/**
+ * Builds an expression tree from the query tokens in one pass. Search strings or groups that follow each other
+ * are connected by AND, NOT binds to the following search string or group, and AND binds stronger than OR. Parens
+ * and operators are checked in the same pass. Wrong parens are reported before wrong operators, no matter where
+ * they are in the query.
+ */
+public class QueryParser {
+
+	private static final String WRONG_PARENS = "Klammern sind nicht richtig gesetzt";
+	private static final String WRONG_OPERATORS = "Operatoren sind nicht richtig gesetzt";
+
+	/**
+	 * @return the root of the tree, or null if there are no tokens
+	 */
+	public QueryNode parse(List<QueryToken> allTokens) throws ParseException {
+		Deque<Level> enclosingLevels = new ArrayDeque<>();
+		Level current = new Level();
+		boolean operatorsCorrect = true;
+		for (int i = 0; i < allTokens.size(); i++) {
+			QueryToken token = allTokens.get(i);
+			operatorsCorrect = operatorsCorrect && isOperatorCorrect(allTokens, i);
+			if (token instanceof ParenthesisLeft) {
+				enclosingLevels.push(current);
+				current = new Level();
+			} else if (token instanceof ParenthesisRight) {
+				if (enclosingLevels.isEmpty()) {
+					throw new ParseException(WRONG_PARENS);
+				}
+				QueryNode group = new QueryNode.Group(current.finish());
+				current = enclosingLevels.pop();
+				current.addOperand(group);
+			} else if (token instanceof OperatorNot) {
+				current.pendingNots++;
+			} else if (token instanceof OperatorOr) {
+				current.startAlternative();
+			} else if (!(token instanceof OperatorAnd)) {
+				current.addOperand(new QueryNode.Leaf(i));
+			}
+		}
+		if (!enclosingLevels.isEmpty()) {
+			throw new ParseException(WRONG_PARENS);
+		}
+		if (!operatorsCorrect) {
+			throw new ParseException(WRONG_OPERATORS);
+		}
+		return current.finish();
+	}
+
+	private boolean isOperatorCorrect(List<QueryToken> allTokens, int i) {
+		QueryToken current = allTokens.get(i);
+		boolean isFirst = (i == 0);
+		boolean isLast = (i == allTokens.size() - 1);
+		boolean isANDorOR = current instanceof OperatorAnd || current instanceof OperatorOr;
+		boolean startsWithANDorOR = isFirst && isANDorOR;
+		boolean isANDorORorNOT = isANDorOR || current instanceof OperatorNot;
+		boolean endsWithOperator = isLast && isANDorORorNOT;
+		if (startsWithANDorOR || endsWithOperator) {
+			return false;
+		}
+		if (!isFirst && !isLast) {
+			QueryToken next = allTokens.get(i + 1);
+			QueryToken previous = allTokens.get(i - 1);
+			boolean expectedPrevious = previous instanceof QueryTokenSearchString || previous instanceof ParenthesisRight;
+			boolean isWrongPrevious = isANDorOR && !expectedPrevious;
+			boolean expectedNext = next instanceof QueryTokenSearchString || next instanceof ParenthesisLeft
+					|| next instanceof OperatorNot;
+			boolean isWrongNext = isANDorORorNOT && !expectedNext;
+			if (isWrongPrevious || isWrongNext) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// the content of a pair of parens, or the whole query
+	private static class Level {
+		private List<QueryNode> alternatives = new ArrayList<>();
+		private List<QueryNode> operandsOfAnd = new ArrayList<>();
+		private int pendingNots = 0;
+
+		private void addOperand(QueryNode operand) {
+			for (; pendingNots > 0; pendingNots--) {
+				operand = new QueryNode.Not(operand);
+			}
+			operandsOfAnd.add(operand);
+		}
+
+		private void startAlternative() {
+			alternatives.add(connectByAnd());
+			operandsOfAnd = new ArrayList<>();
+		}
+
+		private QueryNode connectByAnd() {
+			if (operandsOfAnd.size() == 1) {
+				return operandsOfAnd.get(0);
+			}
+			return new QueryNode.And(operandsOfAnd);
+		}
+
+		private QueryNode finish() {
+			if (alternatives.isEmpty() && operandsOfAnd.isEmpty()) {
+				return null;
+			}
+			alternatives.add(connectByAnd());
+			if (alternatives.size() == 1) {
+				return alternatives.get(0);
+			}
+			return new QueryNode.Or(alternatives);
+		}
+	}
+
+}
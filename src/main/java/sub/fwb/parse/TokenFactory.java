@@ -1,12 +1,11 @@
 package sub.fwb.parse;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
 
+import sub.fwb.parse.QueryLexer.Kind;
 import sub.fwb.parse.tokens.OperatorAnd;
 import sub.fwb.parse.tokens.ComplexPhrase;
 import sub.fwb.parse.tokens.OperatorNot;
@@ -22,69 +21,54 @@ import sub.fwb.parse.tokens.QueryToken;
 import sub.fwb.parse.tokens.Regex;
 import sub.fwb.parse.tokens.Term;
 
+/**
+ * Splits a user query into tokens. The factory has no state, so one instance can be used by concurrent requests.
+ */
 public class TokenFactory {
 
-	private Map<String, String> boosts;
-	private Map<String, String> mapForFacetQueries;
-	private List<QueryToken> allTokens = new ArrayList<>();
-	private String solrFieldEnding = "";
-
 	public List<QueryToken> createTokens(String queryString, String qfWithBoosts, boolean exactSearch) throws ParseException {
-		if (exactSearch) {
-			solrFieldEnding = ParseUtil.EXACT;
-		} else {
-			solrFieldEnding = "";
-		}
-		createMapWithBoosts(qfWithBoosts, solrFieldEnding);
-		createMapForFacetQueries(qfWithBoosts, solrFieldEnding);
-		allTokens = new ArrayList<>();
-		String[] qParts = queryString.trim().split("\\s+");
-		String currentPhrase = "";
-		for (String q : qParts) {
-			String qWithoutSpecials = ParseUtil.removeSpecialChars(q);
-			if (qWithoutSpecials.equals("")) {
-				continue;
-			} else if (qWithoutSpecials.length() > 50) {
-				throw new ParseException("Suchanfrage zu lang: " + q.substring(0, 15) + "...");
-			}
+		String solrFieldEnding = exactSearch ? ParseUtil.EXACT : "";
+		return createTokens(queryString, new QueryFields(qfWithBoosts, solrFieldEnding));
+	}
 
-			String qOrig = q;
-			while (!q.equals("(") && startsWithParen(q)) {
+	public List<QueryToken> createTokens(String queryString, QueryFields fields) throws ParseException {
+		List<QueryToken> allTokens = new ArrayList<>();
+		QueryLexer lexer = new QueryLexer(queryString);
+		StringBuilder currentPhrase = new StringBuilder();
+		while (lexer.next()) {
+			for (int i = 0; i < lexer.leftParens(); i++) {
 				allTokens.add(new ParenthesisLeft());
-				q = q.substring(1);
-			}
-			int addRightParens = 0;
-			if (!qOrig.equals(")") && endsWithParen(qOrig)) {
-				while (!parensMatch(q)) {
-					q = q.substring(0, q.length() - 1);
-					addRightParens++;
-				}
 			}
 
-			if ("OR".equals(q)) {
+			String q = lexer.word();
+			Kind kind = lexer.kind();
+			if (kind == Kind.OR) {
 				allTokens.add(new OperatorOr());
-			} else if ("AND".equals(q)) {
+			} else if (kind == Kind.AND) {
 				allTokens.add(new OperatorAnd());
-			} else if ("NOT".equals(q)) {
+			} else if (kind == Kind.NOT) {
 				allTokens.add(new OperatorNot());
-			} else if ("(".equals(q)) {
+			} else if (kind == Kind.PAREN_LEFT) {
 				allTokens.add(new ParenthesisLeft());
-			} else if (")".equals(q)) {
+			} else if (kind == Kind.PAREN_RIGHT) {
 				allTokens.add(new ParenthesisRight());
-			} else if (isRegex(q)) {
-				addRegexOrPrefixedRegex(q);
-			} else if (isOneWordPhrase(q)) {
-				addTermInsteadOfPhrase(q);
-			} else if (startingAPhrase(q) || insideAPhrase(currentPhrase, q)) {
-				currentPhrase += q + " ";
-			} else if (finishingAPhrase(currentPhrase, q)) {
-				addPhraseOrPrefixedPhrase(currentPhrase + q);
-				currentPhrase = "";
+			} else if (kind == Kind.REGEX) {
+				addRegexOrPrefixedRegex(q, allTokens, fields);
+			} else if (kind == Kind.ONE_WORD_PHRASE) {
+				addTermInsteadOfPhrase(q, allTokens, fields);
+			} else if (kind == Kind.PHRASE_START || insideAPhrase(currentPhrase, kind)) {
+				currentPhrase.append(q).append(' ');
+			} else if (kind == Kind.PHRASE_END) {
+				if (currentPhrase.length() == 0) {
+					throw new ParseException("Phrase ohne Anfang: " + q);
+				}
+				addPhraseOrPrefixedPhrase(currentPhrase.append(q).toString(), allTokens, fields);
+				currentPhrase.setLength(0);
 			} else {
-				addTermOrPrefixedTerm(q);
+				addTermOrPrefixedTerm(q, allTokens, fields);
 			}
 
-			for (int i = 0; i < addRightParens; i++) {
+			for (int i = 0; i < lexer.rightParens(); i++) {
 				allTokens.add(new ParenthesisRight());
 			}
 		}
@@ -93,133 +77,59 @@ public class TokenFactory {
 		return allTokens;
 	}
 
-	private void createMapWithBoosts(String qf, String solrFieldEnding) {
-		boosts = new HashMap<String, String>();
-		boosts.put("artikel" + solrFieldEnding, "");
-		String[] fields = qf.trim().split("\\s+");
-		for (String fieldWithBoost : fields) {
-			String fieldName = fieldWithBoost.split("\\^")[0];
-			String boostValue = "^" + fieldWithBoost.split("\\^")[1];
-			boosts.put(fieldName, boostValue);
-		}
-	}
-
-	private void createMapForFacetQueries(String qf, String solrFieldEnding) {
-		mapForFacetQueries = new HashMap<String, String>();
-		String[] fields = qf.trim().split("\\s+");
-		for (String fieldWithBoost : fields) {
-			String fieldName = fieldWithBoost.split("\\^")[0];
-			mapForFacetQueries.put(fieldName, "");
-		}
-	}
-
-	private boolean startsWithParen(String q) {
-		return q.startsWith("(");
-	}
-
-	private boolean endsWithParen(String q) {
-		// legatar(ius) -> legatarius
-		// legatar(ius)) -> legatarius)
-		// ((legatar(ius) -> ((legatarius
-		String qLocal = removeInnerParens(q);
-		return qLocal.endsWith(")");
-	}
-
-	private String removeInnerParens(String s) {
-		if (s == null || s.isEmpty() || s.replace("(", "").trim().isEmpty()) {
-			return s;
-		}
-		int parensInFront = 0;
-		while (s.charAt(parensInFront) == '(') {
-			parensInFront++;
-		}
-		int indexInnerOpeningParen = s.indexOf("(", parensInFront);
-		if (indexInnerOpeningParen > 0) {
-			String prefix = s.substring(0, indexInnerOpeningParen);
-			String postfix = s.substring(indexInnerOpeningParen + 1);
-			s = prefix + postfix;
-			s = s.replaceFirst("\\)", "");
-		}
-		return s;
-	}
-
-	private boolean parensMatch(String s) {
-		return s.replace("(", "").length() == s.replace(")", "").length();
-	}
-
-	private void addTermInsteadOfPhrase(String oneWordPhrase) throws ParseException {
-		String withReplaced = oneWordPhrase.replaceFirst("\"", "^");
-		withReplaced = withReplaced.substring(0, withReplaced.length() - 1) + "$";
-		if (hasPrefix(oneWordPhrase)) {
-			allTokens.add(new TermPrefixed(withReplaced, solrFieldEnding, boosts));
+	private void addTermInsteadOfPhrase(String oneWordPhrase, List<QueryToken> allTokens, QueryFields fields)
+			throws ParseException {
+		int quote = oneWordPhrase.indexOf('"');
+		String withReplaced = oneWordPhrase.substring(0, quote) + "^"
+				+ oneWordPhrase.substring(quote + 1, oneWordPhrase.length() - 1) + "$";
+		if (QueryLexer.hasPrefix(oneWordPhrase)) {
+			allTokens.add(new TermPrefixed(withReplaced, fields));
 		} else {
-			allTokens.add(new Term(withReplaced, solrFieldEnding, mapForFacetQueries));
+			allTokens.add(new Term(withReplaced, fields));
 		}
 	}
 
-	private void addPhraseOrPrefixedPhrase(String phraseString) {
-		if (hasPrefix(phraseString) && isComplex(phraseString)) {
+	private void addPhraseOrPrefixedPhrase(String phraseString, List<QueryToken> allTokens, QueryFields fields) {
+		String solrFieldEnding = fields.getSolrFieldEnding();
+		if (QueryLexer.hasPrefix(phraseString) && isComplex(phraseString)) {
 			allTokens.add(new ComplexPhrasePrefixed(phraseString, solrFieldEnding));
-		} else if (hasPrefix(phraseString)) {
+		} else if (QueryLexer.hasPrefix(phraseString)) {
 			allTokens.add(new PhrasePrefixed(phraseString, solrFieldEnding));
 		} else if (isComplex(phraseString)) {
-			allTokens.add(new ComplexPhrase(phraseString, solrFieldEnding, mapForFacetQueries));
+			allTokens.add(new ComplexPhrase(phraseString, solrFieldEnding, fields.getMapForFacetQueries()));
 		} else {
-			allTokens.add(new Phrase(phraseString, solrFieldEnding, mapForFacetQueries));
+			allTokens.add(new Phrase(phraseString, solrFieldEnding, fields.getMapForFacetQueries()));
 		}
 	}
 
-	private void addTermOrPrefixedTerm(String termString) throws ParseException {
-		if (hasPrefix(termString)) {
-			allTokens.add(new TermPrefixed(termString, solrFieldEnding, boosts));
+	private void addTermOrPrefixedTerm(String termString, List<QueryToken> allTokens, QueryFields fields)
+			throws ParseException {
+		if (QueryLexer.hasPrefix(termString)) {
+			allTokens.add(new TermPrefixed(termString, fields));
 		} else {
-			allTokens.add(new Term(termString, solrFieldEnding, mapForFacetQueries));
+			allTokens.add(new Term(termString, fields));
 		}
 	}
 
-	private void addRegexOrPrefixedRegex(String regexString) {
-		if (hasPrefix(regexString)) {
+	private void addRegexOrPrefixedRegex(String regexString, List<QueryToken> allTokens, QueryFields fields) {
+		String solrFieldEnding = fields.getSolrFieldEnding();
+		if (QueryLexer.hasPrefix(regexString)) {
 			allTokens.add(new RegexPrefixed(regexString, solrFieldEnding));
 		} else {
-			allTokens.add(new Regex(regexString, solrFieldEnding, mapForFacetQueries));
+			allTokens.add(new Regex(regexString, solrFieldEnding, fields.getMapForFacetQueries()));
 		}
 	}
 
-	private boolean startingAPhrase(String q) throws ParseException {
-		boolean startOfPhrase = q.startsWith("\"") && !q.endsWith("\"");
-		boolean startOfPrefixedPhrase = q.matches("[^:\"]+:\"[^:\"]+");
-		return startOfPhrase || startOfPrefixedPhrase;
-	}
-
-	private boolean insideAPhrase(String currentPhrase, String q) {
-		return !currentPhrase.isEmpty() && !q.endsWith("\"");
+	private boolean insideAPhrase(StringBuilder currentPhrase, Kind kind) {
+		return currentPhrase.length() > 0 && kind != Kind.PHRASE_END;
 	}
 
-	private boolean finishingAPhrase(String currentPhrase, String q) throws ParseException {
-		if (q.endsWith("\"") && currentPhrase.isEmpty()) {
-			throw new ParseException("Phrase ohne Anfang: " + q);
-		}
-		return q.endsWith("\"");
-	}
-
-	private boolean isRegex(String q) {
-		return (q.indexOf("/") < q.length() - 1) && q.endsWith("/");
-	}
-
-	private boolean isOneWordPhrase(String q) {
-		return (q.indexOf("\"") < q.length() - 1) && q.endsWith("\"");
-	}
-
-	private void checkIfIncomplete(String currentPhrase) throws ParseException {
-		if (!currentPhrase.isEmpty()) {
+	private void checkIfIncomplete(StringBuilder currentPhrase) throws ParseException {
+		if (currentPhrase.length() > 0) {
 			throw new ParseException("Phrase nicht komplett: " + currentPhrase);
 		}
 	}
 
-	private boolean hasPrefix(String tokenString) {
-		return tokenString.matches("[a-zA-Z0-9_]+:.*");
-	}
-
 	private boolean isComplex(String phrase) {
 		return phrase.contains("*") || phrase.contains("?");
 	}
@@ -228,4 +138,8 @@ public class TokenFactory {
 		return createTokens(tokenString, queryFieldsWithBoosts, exactSearch).get(0);
 	}
 
+	public QueryToken createOneToken(String tokenString, QueryFields fields) throws ParseException {
+		return createTokens(tokenString, fields).get(0);
+	}
+
 }
@@ -1,6 +1,5 @@
 package sub.fwb.parse.tokens;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
@@ -10,12 +9,19 @@ import sub.fwb.parse.ParseUtil;
 public class ComplexPhrase extends QueryTokenSearchString {
 
 	public ComplexPhrase(String phraseString, String prefixEnding, Map<String, String> mapForFacetQueries) {
-		this.mapForFacetQueries = new HashMap<>(mapForFacetQueries);
+		this.mapForFacetQueries = mapForFacetQueries;
 		this.prefixEnding = prefixEnding;
 		originalTokenString = phraseString;
 		escapeSpecialChars();
 	}
 
+	/**
+	 * The same checks as in getModifiedQuery() and getHlQuery(), for parsers that do not need the query strings.
+	 */
+	public void checkSyntax() throws ParseException {
+		ParseUtil.checkIfOneWord(escapedString.replaceAll("\"", "\\\\\""));
+	}
+
 	@Override
 	public String getModifiedQuery() throws ParseException {
 		String articleField = ParseUtil.article(prefixEnding);
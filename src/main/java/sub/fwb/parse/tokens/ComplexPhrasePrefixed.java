@@ -14,6 +14,14 @@ public class ComplexPhrasePrefixed extends QueryTokenPrefixed {
 		splitIntoPrefixAndPostfix(prefixEnding);
 	}
 
+	/**
+	 * The same checks as in getModifiedQuery() and getHlQuery(), for parsers that do not need the query strings.
+	 */
+	public void checkSyntax() throws ParseException {
+		ParseUtil.checkIfOneWord(escapedString.replaceAll("\"", "\\\\\""));
+		checkZitat();
+	}
+
 	@Override
 	public String getModifiedQuery() throws ParseException {
 		String escapedPhrase = escapedString.replaceAll("\"", "\\\\\"");
@@ -25,15 +33,19 @@ public class ComplexPhrasePrefixed extends QueryTokenPrefixed {
 
 	@Override
 	public String getHlQuery() throws ParseException {
-		if (prefix.equals("zitat") && prefixEnding.isEmpty()) {
-			throw new ParseException("Phrasensuche mit * und ? ist in Zitaten nur als exakte Suche möglich.");
-		}
+		checkZitat();
 		String escapedPhrase = escapedString.replaceAll("\"", "\\\\\"");
 		String postfixTemp = escapedPhrase.split(":")[1];
 		String parser = "complexphrase";
 		return String.format("_query_:\"{!%s}%s_text%s:%s\" ", parser, prefix, prefixEnding, postfixTemp);
 	}
 
+	private void checkZitat() throws ParseException {
+		if (prefix.equals("zitat") && prefixEnding.isEmpty()) {
+			throw new ParseException("Phrasensuche mit * und ? ist in Zitaten nur als exakte Suche möglich.");
+		}
+	}
+
 //	@Override
 //	public Map<String, String> getFacetQueries() {
 //		String newQuery = String.format("_query_:\"{!complexphrase}%s:%s\"", prefixWithEnding,
@@ -1,6 +1,5 @@
 package sub.fwb.parse.tokens;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
@@ -10,7 +9,7 @@ import sub.fwb.parse.ParseUtil;
 public class Phrase extends QueryTokenSearchString {
 
 	public Phrase(String phraseString, String prefixEnding, Map<String, String> mapForFacetQueries) {
-		this.mapForFacetQueries = new HashMap<>(mapForFacetQueries);
+		this.mapForFacetQueries = mapForFacetQueries;
 		this.prefixEnding = prefixEnding;
 		originalTokenString = ParseUtil.removeParensAndPipe(phraseString);
 		escapeSpecialChars();
@@ -33,10 +32,7 @@ public class Phrase extends QueryTokenSearchString {
 
 	@Override
 	public Map<String, String> getFacetQueries() {
-		for (String searchField : mapForFacetQueries.keySet()) {
-			mapForFacetQueries.put(searchField, escapedString);
-		}
-		return mapForFacetQueries;
+		return facetQueriesForAllFields(escapedString);
 	}
 
 }
@@ -26,8 +26,7 @@ public class PhrasePrefixed extends QueryTokenPrefixed {
 
 	@Override
 	public Map<String, String> getFacetQueries() {
-		mapForFacetQueries.put(prefixWithEnding, postfix);
-		return mapForFacetQueries;
+		return facetQueryForField(prefixWithEnding, postfix);
 	}
 
 }
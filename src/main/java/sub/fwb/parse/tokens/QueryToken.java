@@ -1,5 +1,6 @@
 package sub.fwb.parse.tokens;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,7 +13,8 @@ public abstract class QueryToken {
 	protected String originalTokenString;
 	protected String escapedString = "";
 	protected String prefixEnding = "";
-	protected Map<String, String> mapForFacetQueries = new HashMap<>();
+	// shared by all tokens of a request, must not be changed
+	protected Map<String, String> mapForFacetQueries = Collections.emptyMap();
 
 	abstract public String getModifiedQuery() throws ParseException;
 
@@ -22,14 +24,30 @@ public abstract class QueryToken {
 		return new HashMap<>();
 	}
 
+	protected Map<String, String> facetQueriesForAllFields(String query) {
+		Map<String, String> facetQueries = new HashMap<>();
+		for (String searchField : mapForFacetQueries.keySet()) {
+			facetQueries.put(searchField, query);
+		}
+		return facetQueries;
+	}
+
+	protected Map<String, String> facetQueryForField(String searchField, String query) {
+		Map<String, String> facetQueries = new HashMap<>();
+		facetQueries.put(searchField, query);
+		return facetQueries;
+	}
+
+	public String getOriginalTokenString() {
+		return originalTokenString;
+	}
+
+	public String getEscapedString() {
+		return escapedString;
+	}
+
 	protected void escapeSpecialChars() {
-		escapedString = originalTokenString.replaceAll("\\|", "\\\\|");
-		escapedString = escapedString.replaceAll("\\(", "\\\\(");
-		escapedString = escapedString.replaceAll("\\)", "\\\\)");
-		escapedString = escapedString.replaceAll("\\[", "\\\\[");
-		escapedString = escapedString.replaceAll("\\]", "\\\\]");
-		escapedString = escapedString.replaceAll("-", "\\\\-");
-		escapedString = ParseUtil.removeSpecialChars(escapedString);
+		escapedString = ParseUtil.escapeSpecialChars(originalTokenString);
 	}
 
 }
@@ -18,4 +18,12 @@ public abstract class QueryTokenPrefixed extends QueryTokenSearchString {
 		return prefix;
 	}
 
+	public String getPrefixWithEnding() {
+		return prefixWithEnding;
+	}
+
+	public String getPostfix() {
+		return postfix;
+	}
+
 }
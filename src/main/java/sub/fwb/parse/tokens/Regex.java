@@ -1,6 +1,5 @@
 package sub.fwb.parse.tokens;
 
-import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
@@ -10,7 +9,7 @@ import sub.fwb.parse.ParseUtil;
 public class Regex extends QueryTokenSearchString {
 
 	public Regex(String regexString, String prefixEnding, Map<String, String> mapForFacetQueries) {
-		this.mapForFacetQueries = new HashMap<>(mapForFacetQueries);
+		this.mapForFacetQueries = mapForFacetQueries;
 		this.prefixEnding = prefixEnding;
 		originalTokenString = regexString;
 	}
@@ -32,10 +31,7 @@ public class Regex extends QueryTokenSearchString {
 
 	@Override
 	public Map<String, String> getFacetQueries() {
-		for (String searchField : mapForFacetQueries.keySet()) {
-			mapForFacetQueries.put(searchField, originalTokenString);
-		}
-		return mapForFacetQueries;
+		return facetQueriesForAllFields(originalTokenString);
 	}
 
 }
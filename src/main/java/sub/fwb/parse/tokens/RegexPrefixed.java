@@ -24,8 +24,7 @@ public class RegexPrefixed extends QueryTokenPrefixed {
 
 	@Override
 	public Map<String, String> getFacetQueries() {
-		mapForFacetQueries.put(prefixWithEnding, postfix);
-		return mapForFacetQueries;
+		return facetQueryForField(prefixWithEnding, postfix);
 	}
 
 }
@@ -1,188 +1,114 @@
 package sub.fwb.parse.tokens;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
 
 import sub.fwb.parse.ParseUtil;
+import sub.fwb.parse.QueryFields;
 
 public class Term extends QueryTokenSearchString {
 
-	private String articleField;
-	private String citationField;
-	private String sufoField;
-	private String sufoTextField;
-	private String articleTextField;
-	private String citationTextField;
-	private String searchString;
+	private final TermKind kind;
+	private final String searchString;
+	// all derived from the search string in the constructor, because they are asked for more than once
+	private final String modifiedQuery;
+	private final String hlQuery;
+	private final String facetQuery;
 
-	public Term(String tokenString, String prefixEnding, Map<String, String> mapForFacetQueries) throws ParseException {
-		this.prefixEnding = prefixEnding;
+	public Term(String tokenString, QueryFields fields) throws ParseException {
+		this.prefixEnding = fields.getSolrFieldEnding();
 		originalTokenString = tokenString;
-		this.mapForFacetQueries = new HashMap<>(mapForFacetQueries);
+		this.mapForFacetQueries = fields.getMapForFacetQueries();
 		escapeSpecialChars();
 		ParseUtil.checkForProhibitedCharsInTerm(escapedString);
-		articleField = ParseUtil.article(prefixEnding);
-		citationField = ParseUtil.citation(prefixEnding);
-		sufoField = ParseUtil.sufo(prefixEnding);
-		sufoTextField = ParseUtil.sufoText(prefixEnding);
-		articleTextField = ParseUtil.articleText(prefixEnding);
-		citationTextField = ParseUtil.citationText(prefixEnding);
+		kind = TermKind.of(escapedString);
+		searchString = kind.searchString(escapedString);
+		facetQuery = kind.pattern(searchString);
+
+		StringBuilder query = new StringBuilder();
+		query.append('(');
+		appendAlternatives(query, fields);
+		query.append(" +(");
+		query.append(fields.fieldQuery(ParseUtil.article(prefixEnding), facetQuery)).append(' ');
+		query.append(fields.fieldQuery(ParseUtil.citation(prefixEnding), facetQuery));
+		if (kind == TermKind.PART_OF_WORD) {
+			query.append(' ').append(fields.fieldQuery(ParseUtil.sufo(prefixEnding), facetQuery));
+		}
+		query.append(")) ");
+		modifiedQuery = query.toString();
+
+		StringBuilder hl = new StringBuilder();
+		hl.append(ParseUtil.articleText(prefixEnding)).append(':').append(facetQuery).append(' ');
+		hl.append(ParseUtil.citationText(prefixEnding)).append(':').append(facetQuery).append(' ');
+		if (kind == TermKind.PART_OF_WORD) {
+			hl.append(ParseUtil.sufoText(prefixEnding)).append(':').append(facetQuery).append(' ');
+		}
+		hlQuery = hl.toString();
 	}
 
-	@Override
-	public String getModifiedQuery() {
-		return createSubTerm().getModifiedQuery();
-	}
-
-	@Override
-	public String getHlQuery() throws ParseException {
-		return createSubTerm().getHlQuery();
-	}
-
-	@Override
-	public Map<String, String> getFacetQueries() {
-		return createSubTerm().getFacetQueries();
-	}
-
-	private SubTerm createSubTerm() {
-		if (escapedString.endsWith("~1") || escapedString.endsWith("~2")) {
-			searchString = escapedString.substring(0, escapedString.length() - 2);
-			searchString = ParseUtil.freeFromCircumflexAndDollar(searchString);
-			String fuzzyEnding = escapedString.substring(escapedString.length() - 2);
-			return new WithFuzzy(fuzzyEnding);
-		} else if (escapedString.startsWith("^") && escapedString.endsWith("$")) {
-			searchString = escapedString.substring(1, escapedString.length() - 1);
-			return new PreciseWord();
-		} else if (escapedString.startsWith("^")) {
-			searchString = escapedString.substring(1, escapedString.length());
-			return new WordBegin();
-		} else if (escapedString.endsWith("$")) {
-			searchString = escapedString.substring(0, escapedString.length() - 1);
-			return new WordEnd();
-		} else {
-			searchString = escapedString;
-			return new PartOfWord();
-		}
-	}
-
-	private interface SubTerm {
-		public String getModifiedQuery();
-		public String getHlQuery();
-		public Map<String, String> getFacetQueries();
-	}
-
-	private class WithFuzzy implements SubTerm {
-		private String fuzzy;
-
-		public WithFuzzy(String fuzzyEnding) {
-			this.fuzzy = fuzzyEnding;
-		}
-
-		@Override
-		public String getModifiedQuery() {
-			return String.format("(%s%s +(%s:%s%s %s:%s%s)) ", searchString, fuzzy, articleField, searchString, fuzzy,
-					citationField, searchString, fuzzy);
-		}
-
-		@Override
-		public String getHlQuery() {
-			return String.format("%s:%s%s %s:%s%s ", articleTextField, searchString, fuzzy, citationTextField,
-					searchString, fuzzy);
-		}
-
-		@Override
-		public Map<String, String> getFacetQueries() {
-			for (String searchField : mapForFacetQueries.keySet()) {
-				mapForFacetQueries.put(searchField, searchString + fuzzy);
+	// imbis imbis* *imbis*, or imbis imbis* _query_:"{!edismax qf='lemma_suffix^1000 ...'}imbis*" if there are
+	// fields with all suffixes, so that the best field counts, like for the bare alternatives
+	private void appendAlternatives(StringBuilder query, QueryFields fields) {
+		List<String> alternatives = kind.alternatives(searchString);
+		for (int i = 0; i < alternatives.size(); i++) {
+			if (i > 0) {
+				query.append(' ');
 			}
-			return mapForFacetQueries;
-		}
-	}
-
-	private class PreciseWord implements SubTerm {
-		@Override
-		public String getModifiedQuery() {
-			return String.format("(%s +(%s:%s %s:%s)) ", searchString, articleField, searchString, citationField,
-					searchString);
-		}
-
-		@Override
-		public String getHlQuery() {
-			return String.format("%s:%s %s:%s ", articleTextField, searchString, citationTextField, searchString);
-		}
-
-		@Override
-		public Map<String, String> getFacetQueries() {
-			for (String searchField : mapForFacetQueries.keySet()) {
-				mapForFacetQueries.put(searchField, searchString);
+			String alternative = alternatives.get(i);
+			if (!fields.isRewritten(alternative)) {
+				query.append(alternative);
+				continue;
 			}
-			return mapForFacetQueries;
+			// in the order of the qf
+			query.append("_query_:\"{!edismax qf='");
+			boolean first = true;
+			for (String field : mapForFacetQueries.keySet()) {
+				if (!first) {
+					query.append(' ');
+				}
+				first = false;
+				query.append(fields.fieldFor(field, alternative)).append(fields.getBoosts().get(field));
+			}
+			query.append("'}");
+			appendInQuotes(query, fields.patternFor(alternative));
+			query.append('"');
 		}
 	}
 
-	private class WordBegin implements SubTerm {
-		@Override
-		public String getModifiedQuery() {
-			return String.format("(%s %s* +(%s:%s* %s:%s*)) ", searchString, searchString, articleField, searchString,
-					citationField, searchString);
-		}
-
-		@Override
-		public String getHlQuery() {
-			return String.format("%s:%s* %s:%s* ", articleTextField, searchString, citationTextField, searchString);
-		}
-
-		@Override
-		public Map<String, String> getFacetQueries() {
-			for (String searchField : mapForFacetQueries.keySet()) {
-				mapForFacetQueries.put(searchField, searchString + "*");
+	// the nested query is a quoted string, so its backslashes must be escaped once more
+	private void appendInQuotes(StringBuilder query, String pattern) {
+		for (int i = 0; i < pattern.length(); i++) {
+			char c = pattern.charAt(i);
+			if (c == '\\' || c == '"') {
+				query.append('\\');
 			}
-			return mapForFacetQueries;
+			query.append(c);
 		}
 	}
 
-	private class WordEnd implements SubTerm {
-		@Override
-		public String getModifiedQuery() {
-			return String.format("(*%s +(%s:*%s %s:*%s)) ", searchString, articleField, searchString, citationField,
-					searchString);
-		}
-
-		@Override
-		public String getHlQuery() {
-			return String.format("%s:*%s %s:*%s ", articleTextField, searchString, citationTextField, searchString);
-		}
+	public TermKind getKind() {
+		return kind;
+	}
 
-		@Override
-		public Map<String, String> getFacetQueries() {
-			for (String searchField : mapForFacetQueries.keySet()) {
-				mapForFacetQueries.put(searchField, "*" + searchString);
-			}
-			return mapForFacetQueries;
-		}
+	public String getSearchString() {
+		return searchString;
 	}
 
-	private class PartOfWord implements SubTerm {
-		@Override
-		public String getModifiedQuery() {
-			return String.format("(%s %s* *%s* +(%s:*%s* %s:*%s* %s:*%s*)) ", searchString, searchString, searchString,
-					articleField, searchString, citationField, searchString, sufoField, searchString);
-		}
+	@Override
+	public String getModifiedQuery() {
+		return modifiedQuery;
+	}
 
-		@Override
-		public String getHlQuery() {
-			return String.format("%s:*%s* %s:*%s* %s:*%s* ", articleTextField, searchString, citationTextField, searchString, sufoTextField, searchString);
-		}
+	@Override
+	public String getHlQuery() {
+		return hlQuery;
+	}
 
-		@Override
-		public Map<String, String> getFacetQueries() {
-			for (String searchField : mapForFacetQueries.keySet()) {
-				mapForFacetQueries.put(searchField, "*" + searchString + "*");
-			}
-			return mapForFacetQueries;
-		}
+	@Override
+	public Map<String, String> getFacetQueries() {
+		return facetQueriesForAllFields(facetQuery);
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,94 @@
+package sub.fwb.parse.tokens;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import sub.fwb.parse.ParseUtil;
+
+/**
+ * How a search term is matched, recognized by its fuzzy ending ~1 or ~2 and by the anchors ^ and $.
+ */
+public enum TermKind {
+	FUZZY, PRECISE_WORD, WORD_BEGIN, WORD_END, PART_OF_WORD;
+
+	public static TermKind of(String term) {
+		if (term.endsWith("~1") || term.endsWith("~2")) {
+			return FUZZY;
+		} else if (term.startsWith("^") && term.endsWith("$")) {
+			return PRECISE_WORD;
+		} else if (term.startsWith("^")) {
+			return WORD_BEGIN;
+		} else if (term.endsWith("$")) {
+			return WORD_END;
+		} else {
+			return PART_OF_WORD;
+		}
+	}
+
+	/**
+	 * @return the term without anchors, a fuzzy ending is kept
+	 */
+	public String searchString(String term) {
+		switch (this) {
+		case FUZZY:
+			String fuzzyEnding = term.substring(term.length() - 2);
+			return ParseUtil.freeFromCircumflexAndDollar(term.substring(0, term.length() - 2)) + fuzzyEnding;
+		case PRECISE_WORD:
+			return term.substring(1, term.length() - 1);
+		case WORD_BEGIN:
+			return term.substring(1);
+		case WORD_END:
+			return term.substring(0, term.length() - 1);
+		default:
+			return term;
+		}
+	}
+
+	/**
+	 * @return the search string with wildcards, e. g. imbis* for a word begin
+	 */
+	public String pattern(String searchString) {
+		switch (this) {
+		case WORD_BEGIN:
+			return searchString + "*";
+		case WORD_END:
+			return "*" + searchString;
+		case PART_OF_WORD:
+			return "*" + searchString + "*";
+		default:
+			return searchString;
+		}
+	}
+
+	/**
+	 * @return the patterns to search for, e. g. imbis and imbis* for a word begin
+	 */
+	public List<String> alternatives(String searchString) {
+		switch (this) {
+		case WORD_BEGIN:
+			return Arrays.asList(searchString, searchString + "*");
+		case PART_OF_WORD:
+			return Arrays.asList(searchString, searchString + "*", "*" + searchString + "*");
+		default:
+			return Collections.singletonList(pattern(searchString));
+		}
+	}
+
+	/**
+	 * @return the patterns to search for, separated by spaces
+	 */
+	public String joinedAlternatives(String searchString) {
+		List<String> alternatives = alternatives(searchString);
+		StringBuilder joined = new StringBuilder(alternatives.get(0));
+		for (int i = 1; i < alternatives.size(); i++) {
+			joined.append(' ').append(alternatives.get(i));
+		}
+		return joined.toString();
+	}
+
+	public boolean hasAlternatives() {
+		return this == WORD_BEGIN || this == PART_OF_WORD;
+	}
+
+}
@@ -1,23 +1,63 @@
 package sub.fwb.parse.tokens;
 
+import java.util.List;
 import java.util.Map;
 
 import org.apache.solr.parser.ParseException;
 
 import sub.fwb.parse.ParseUtil;
+import sub.fwb.parse.QueryFields;
 
 public class TermPrefixed extends QueryTokenPrefixed {
 
-	private Map<String, String> boosts;
+	private final TermKind kind;
+	private final String searchString;
+	// all derived from the postfix in the constructor, because they are asked for more than once
+	private final String modifiedQuery;
+	private final String hlQuery;
+	private final String facetQuery;
 
-	public TermPrefixed(String termString, String prefixEnding, Map<String, String> qfWithBoosts)
-			throws ParseException {
+	public TermPrefixed(String termString, QueryFields fields) throws ParseException {
 		originalTokenString = termString;
 		escapeSpecialChars();
 		checkForCorrectness();
-		splitIntoPrefixAndPostfix(prefixEnding);
+		splitIntoPrefixAndPostfix(fields.getSolrFieldEnding());
 		ParseUtil.checkForProhibitedCharsInTerm(postfix);
-		boosts = qfWithBoosts;
+		kind = TermKind.of(postfix);
+		searchString = kind.searchString(postfix);
+		facetQuery = kind.pattern(searchString);
+
+		// an unknown field is only reported when the query is needed
+		String boost = fields.getBoosts().get(prefixWithEnding);
+		if (boost == null) {
+			modifiedQuery = null;
+		} else {
+			StringBuilder query = new StringBuilder();
+			List<String> alternatives = kind.alternatives(searchString);
+			if (!fields.isRewritten(alternatives.get(alternatives.size() - 1))) {
+				query.append(prefixWithEnding).append(':');
+				if (kind.hasAlternatives()) {
+					query.append('(').append(kind.joinedAlternatives(searchString)).append(')');
+				} else {
+					query.append(kind.joinedAlternatives(searchString));
+				}
+			} else if (kind.hasAlternatives()) {
+				// (lemma:imbis lemma:imbis* lemma_suffix:imbis*)
+				query.append('(');
+				for (int i = 0; i < alternatives.size(); i++) {
+					if (i > 0) {
+						query.append(' ');
+					}
+					query.append(fields.fieldQuery(prefixWithEnding, alternatives.get(i)));
+				}
+				query.append(')');
+			} else {
+				query.append(fields.fieldQuery(prefixWithEnding, alternatives.get(0)));
+			}
+			query.append(boost).append(' ');
+			modifiedQuery = query.toString();
+		}
+		hlQuery = prefix + "_text" + prefixEnding + ":" + facetQuery + " ";
 	}
 
 	private void checkForCorrectness() throws ParseException {
@@ -31,78 +71,30 @@ public class TermPrefixed extends QueryTokenPrefixed {
 		}
 	}
 
-	@Override
-	public String getModifiedQuery() throws ParseException {
-		String boost = getBoost(prefixWithEnding);
-		if (postfix.endsWith("~1") || postfix.endsWith("~2")) {
-			String fuzzy = postfix.substring(postfix.length() - 2);
-			String postfixTemp = postfix.substring(0, postfix.length() - 2);
-			postfixTemp = ParseUtil.freeFromCircumflexAndDollar(postfixTemp);
-			return String.format("%s:%s%s%s ", prefixWithEnding, postfixTemp, fuzzy, boost);
-		} else if (postfix.startsWith("^") && postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(1, postfix.length() - 1);
-			return String.format("%s:%s%s ", prefixWithEnding, postfixTemp, boost);
-		} else if (postfix.startsWith("^")) {
-			String postfixTemp = postfix.substring(1, postfix.length());
-			return String.format("%s:(%s %s*)%s ", prefixWithEnding, postfixTemp, postfixTemp, boost);
-		} else if (postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(0, postfix.length() - 1);
-			return String.format("%s:*%s%s ", prefixWithEnding, postfixTemp, boost);
-		} else {
-			return String.format("%s:(%s %s* *%s*)%s ", prefixWithEnding, postfix, postfix, postfix, boost);
-		}
+	public TermKind getKind() {
+		return kind;
 	}
 
-	private String getBoost(String prefix) throws ParseException {
-		String boost = boosts.get(prefix);
-		if (boost == null) {
-			throw new ParseException("Suchfeld existiert nicht: " + prefix);
-		}
-		return boost;
+	public String getSearchString() {
+		return searchString;
 	}
 
 	@Override
-	public String getHlQuery() throws ParseException {
-		String prefixForHl = prefix + "_text" + prefixEnding;
-		if (postfix.endsWith("~1") || postfix.endsWith("~2")) {
-			String fuzzy = postfix.substring(postfix.length() - 2);
-			String postfixTemp = postfix.substring(0, postfix.length() - 2);
-			postfixTemp = ParseUtil.freeFromCircumflexAndDollar(postfixTemp);
-			return String.format("%s:%s%s ", prefixForHl, postfixTemp, fuzzy);
-		} else if (postfix.startsWith("^") && postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(1, postfix.length() - 1);
-			return String.format("%s:%s ", prefixForHl, postfixTemp);
-		} else if (postfix.startsWith("^")) {
-			String postfixTemp = postfix.substring(1, postfix.length());
-			return String.format("%s:%s* ", prefixForHl, postfixTemp);
-		} else if (postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(0, postfix.length() - 1);
-			return String.format("%s:*%s ", prefixForHl, postfixTemp);
-		} else {
-			return String.format("%s:*%s* ", prefixForHl, postfix);
+	public String getModifiedQuery() throws ParseException {
+		if (modifiedQuery == null) {
+			throw new ParseException("Suchfeld existiert nicht: " + prefixWithEnding);
 		}
+		return modifiedQuery;
+	}
+
+	@Override
+	public String getHlQuery() {
+		return hlQuery;
 	}
 
 	@Override
 	public Map<String, String> getFacetQueries() {
-		if (postfix.endsWith("~1") || postfix.endsWith("~2")) {
-			String fuzzy = postfix.substring(postfix.length() - 2);
-			String postfixTemp = postfix.substring(0, postfix.length() - 2);
-			postfixTemp = ParseUtil.freeFromCircumflexAndDollar(postfixTemp);
-			mapForFacetQueries.put(prefixWithEnding, String.format("%s%s", postfixTemp, fuzzy));
-		} else if (postfix.startsWith("^") && postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(1, postfix.length() - 1);
-			mapForFacetQueries.put(prefixWithEnding, String.format("%s", postfixTemp));
-		} else if (postfix.startsWith("^")) {
-			String postfixTemp = postfix.substring(1, postfix.length());
-			mapForFacetQueries.put(prefixWithEnding, String.format("%s*", postfixTemp));
-		} else if (postfix.endsWith("$")) {
-			String postfixTemp = postfix.substring(0, postfix.length() - 1);
-			mapForFacetQueries.put(prefixWithEnding, String.format("*%s", postfixTemp));
-		} else {
-			mapForFacetQueries.put(prefixWithEnding, String.format("*%s*", postfix));
-		}
-		return mapForFacetQueries;
+		return facetQueryForField(prefixWithEnding, facetQuery);
 	}
 
 }
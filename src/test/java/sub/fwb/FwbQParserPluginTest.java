@@ -0,0 +1,32 @@
+package sub.fwb;
+
+import org.apache.solr.search.SyntaxError;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class FwbQParserPluginTest {
+
+	@Rule
+	public ExpectedException inTest = ExpectedException.none();
+
+	@Test
+	public void shouldAcceptFieldsWithBoosts() throws Exception {
+		FwbQParserPlugin.checkBoosts(" lemma^1000  zitat^0.5 ");
+	}
+
+	@Test
+	public void shouldRejectFieldWithoutBoost() throws Exception {
+		inTest.expect(SyntaxError.class);
+		inTest.expectMessage("Parameter qf braucht Feld^Gewicht: zitat");
+		FwbQParserPlugin.checkBoosts("lemma^1000 zitat");
+	}
+
+	@Test
+	public void shouldRejectBoostThatIsNoNumber() throws Exception {
+		inTest.expect(SyntaxError.class);
+		inTest.expectMessage("lemma^viel");
+		FwbQParserPlugin.checkBoosts("lemma^viel");
+	}
+
+}
@@ -0,0 +1,115 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LemmaDictionaryTest {
+
+	private LemmaDictionaryBuilder builder;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new LemmaDictionaryBuilder();
+	}
+
+	@Test
+	public void shouldFindVariantsAfterSaving() throws Exception {
+		builder.addLemma("amt(s)gericht");
+		builder.addLemma("bar|tuch");
+		LemmaDictionary.Reader readerSut = saveAndLoad(builder.build()).newReader();
+
+		char[][] variants = readerSut.lookup("amt(s)gericht");
+		assertEquals(3, variants.length);
+		assertEquals("amt(s)gericht", new String(variants[0]));
+		assertEquals("amtgericht", new String(variants[1]));
+		assertEquals("amtsgericht", new String(variants[2]));
+		assertEquals(2, readerSut.lookup("bar|tuch").length);
+	}
+
+	@Test
+	public void shouldSkipDuplicateVariants() throws Exception {
+		// both groups alone give amtsgericht
+		assertEquals(5, new LemmaNormalizer().createMappings("amt(s)(s)gericht").size());
+		builder.addLemma("amt(s)(s)gericht");
+		LemmaDictionary.Reader readerSut = builder.build().newReader();
+
+		char[][] variants = readerSut.lookup("amt(s)(s)gericht");
+		assertEquals(4, variants.length);
+		assertEquals("amt(s)(s)gericht", new String(variants[0]));
+		assertEquals("amtgericht", new String(variants[1]));
+		assertEquals("amtsgericht", new String(variants[2]));
+		assertEquals("amtssgericht", new String(variants[3]));
+	}
+
+	@Test
+	public void shouldRemoveUnnecessaryParenLikeFilter() throws Exception {
+		builder.addLemma("(geld");
+		LemmaDictionary.Reader readerSut = builder.build().newReader();
+
+		assertNull(readerSut.lookup("(geld"));
+		assertEquals(1, readerSut.lookup("geld").length);
+	}
+
+	@Test
+	public void shouldNotFindUnknownLemmas() throws Exception {
+		builder.addLemma("amt(s)gericht");
+		LemmaDictionary.Reader readerSut = builder.build().newReader();
+
+		assertNull(readerSut.lookup("amt"));
+		assertNull(readerSut.lookup("amt(s)gerichte"));
+	}
+
+	@Test
+	public void shouldLoadEmptyDictionary() throws Exception {
+		LemmaDictionary.Reader readerSut = saveAndLoad(builder.build()).newReader();
+
+		assertNull(readerSut.lookup("geld"));
+	}
+
+	@Test
+	public void shouldLoadEmptyFile() throws Exception {
+		LemmaDictionary dictionary = LemmaDictionary.load(new ByteArrayInputStream(new byte[0]));
+
+		assertNull(dictionary.newReader().lookup("geld"));
+	}
+
+	@Test
+	public void shouldLeaveOutLemmasWithMoreVariantsThanAllowed() throws Exception {
+		builder = new LemmaDictionaryBuilder(4);
+		// 9 variants
+		builder.addLemma("a(b)c(d)e(f)g");
+		builder.addLemma("amt(s)gericht");
+		LemmaDictionary.Reader readerSut = builder.build().newReader();
+
+		assertNull(readerSut.lookup("a(b)c(d)e(f)g"));
+		assertEquals(3, readerSut.lookup("amt(s)gericht").length);
+	}
+
+	@Test
+	public void shouldLetTheFilterComputeLemmasLeftOut() throws Exception {
+		builder = new LemmaDictionaryBuilder(4);
+		builder.addLemma("a(b)c(d)e(f)g");
+		FilterStatistics statistics = new FilterStatistics(LemmaNormalizingFilter.CAPPED, UmlautFilter.DUPLICATES,
+				LemmaDictionary.HITS, LemmaDictionary.MISSES, VariantCache.HITS, VariantCache.MISSES);
+
+		List<String> positions = TokenStreams.positions(
+				new LemmaNormalizingFilter(TokenStreams.of("a(b)c(d)e(f)g"), 16, builder.build(), null, statistics));
+
+		assertEquals(9, positions.get(0).split(" ").length);
+		assertEquals(1, statistics.get(LemmaDictionary.MISSES));
+		assertEquals(0, statistics.get(LemmaNormalizingFilter.CAPPED));
+	}
+
+	private LemmaDictionary saveAndLoad(LemmaDictionary dictionary) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		dictionary.save(out);
+		return LemmaDictionary.load(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+}
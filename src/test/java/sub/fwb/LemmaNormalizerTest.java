@@ -123,4 +123,63 @@ public class LemmaNormalizerTest {
 		assertEquals("geld", results.get(1));
 	}
 
+	@Test
+	public void shouldStopAtMaxVariants() {
+		LemmaNormalizer cappedNorm = new LemmaNormalizer(4);
+		List<String> results = cappedNorm.createMappings("amt(s)gericht(en)geld");
+		assertEquals(4, results.size());
+		assertEquals("amt(s)gericht(en)geld", results.get(0));
+		assertEquals("amtgerichtgeld", results.get(1));
+		assertEquals("amtsgerichtgeld", results.get(2));
+		assertEquals("amtgerichtengeld", results.get(3));
+		assertTrue(cappedNorm.isCapped());
+	}
+
+	@Test
+	public void shouldHandleManyGroupsWithMaxVariants() {
+		String lemma = "";
+		for (int i = 0; i < 70; i++) {
+			lemma += "a(b)";
+		}
+		LemmaNormalizer cappedNorm = new LemmaNormalizer(10);
+		List<String> results = cappedNorm.createMappings(lemma);
+		assertEquals(10, results.size());
+		assertTrue(cappedNorm.isCapped());
+	}
+
+	@Test(timeout = 10000)
+	public void shouldCapLemmasWithManyGroupsByDefault() {
+		StringBuilder lemma = new StringBuilder();
+		for (int i = 0; i < 64; i++) {
+			lemma.append("a(b)");
+		}
+		List<String> results = norm.createMappings(lemma.toString());
+		assertEquals(LemmaNormalizer.DEFAULT_MAX_VARIANTS, results.size());
+		assertTrue(norm.isCapped());
+	}
+
+	@Test
+	public void shouldReportCappingBeforeEnumerating() {
+		LemmaNormalizer cappedNorm = new LemmaNormalizer(5);
+		List<String> results = cappedNorm.createMappings("a(b)c(d)e");
+		// the original, the one without groups, and the three combinations
+		assertEquals(5, results.size());
+		assertFalse(cappedNorm.isCapped());
+		assertEquals(4, new LemmaNormalizer(4).createMappings("a(b)c(d)e").size());
+	}
+
+	@Test
+	public void shouldAlsoCapTheFilterByDefault() throws Exception {
+		StringBuilder lemma = new StringBuilder();
+		for (int i = 0; i < 63; i++) {
+			lemma.append("a(b)");
+		}
+		FilterStatistics statistics = new FilterStatistics(LemmaNormalizingFilter.CAPPED, UmlautFilter.DUPLICATES,
+				LemmaDictionary.HITS, LemmaDictionary.MISSES, VariantCache.HITS, VariantCache.MISSES);
+		List<String> positions = TokenStreams
+				.positions(new LemmaNormalizingFilter(TokenStreams.of(lemma.toString()), null, statistics));
+		assertEquals(LemmaNormalizer.DEFAULT_MAX_VARIANTS, positions.get(0).split(" ").length);
+		assertEquals(1, statistics.get(LemmaNormalizingFilter.CAPPED));
+	}
+
 }
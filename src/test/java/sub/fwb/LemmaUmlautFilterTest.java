@@ -0,0 +1,127 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.junit.Test;
+
+public class LemmaUmlautFilterTest {
+
+	private UmlautMappings mappings = UmlautMappings.compile(Arrays.asList("ä:a,ae", "ß:ss", "U+0365:"));
+	private FilterStatistics statistics = new FilterStatistics(UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED,
+			UmlautFilter.CAPPED, UmlautFilter.DUPLICATES, VariantCache.HITS, VariantCache.MISSES);
+
+	@Test
+	public void shouldCreateTheSameTermsAsTheStackedFilters() throws Exception {
+		String[] lemmas = { "imbis", "bär", "ampt(s)kleid", "acht|ek", "stä(r)ke|ß", "[ab]täß", "uͥber(ä)" };
+		for (String lemma : lemmas) {
+			assertEquals(lemma, stackedTerms(lemma), fusedTerms(lemma));
+		}
+	}
+
+	@Test
+	public void shouldEmitDuplicatesOfTheCrossProductOnlyOnce() throws Exception {
+		// bäer -> bäer, baer, baeer and bär -> bär, bar, baer
+		List<String> fused = fusedTerms("bä(e)r");
+
+		assertEquals(stackedTerms("bä(e)r"), fused);
+		assertEquals(1, count("baer", fused));
+		assertEquals(1, statistics.get(UmlautFilter.DUPLICATES));
+	}
+
+	@Test
+	public void shouldKeepAllTermsOnThePositionOfTheLemma() throws Exception {
+		TokenStream stream = fused(of("bä(e)r", "gast"), Integer.MAX_VALUE);
+
+		List<String> positions = positions(stream);
+
+		assertEquals(2, positions.size());
+		assertEquals(fusedTerms("bä(e)r"), Arrays.asList(positions.get(0).split(" ")));
+		assertEquals("gast", positions.get(1));
+	}
+
+	@Test
+	public void shouldDifferFromTheStackedFiltersThatStartAPositionForEachLemmaVariant() throws Exception {
+		FilterStatistics ignored = new FilterStatistics(UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED,
+				UmlautFilter.CAPPED, UmlautFilter.DUPLICATES);
+		TokenStream lemmas = new LemmaNormalizingFilter(of("bä(e)r"), null, ignored);
+		TokenStream stacked = new UmlautFilter(lemmas, mappings, Integer.MAX_VALUE, null, ignored);
+
+		assertEquals(Arrays.asList("bä(e)r ba(e)r bae(e)r", "bär bar baer", "bäer baer baeer"), positions(stacked));
+		assertEquals(Arrays.asList("bä(e)r ba(e)r bae(e)r bär bar baer bäer baeer"),
+				positions(fused(of("bä(e)r"), Integer.MAX_VALUE)));
+	}
+
+	@Test
+	public void shouldCapTheTermsOfOneLemma() throws Exception {
+		List<String> positions = positions(fused(of("bä(e)r"), 2));
+
+		assertEquals(Arrays.asList("bä(e)r ba(e)r"), positions);
+		assertEquals(1, statistics.get(UmlautFilter.CAPPED));
+	}
+
+	@Test
+	public void shouldUseTheCachedTermsForTheSameLemma() throws Exception {
+		AtomicReference<VariantCache> cache = new AtomicReference<>(new VariantCache(10, statistics));
+		TokenStream stream = new LemmaUmlautFilter(of("bä(e)r", "bä(e)r"), new AtomicReference<>(mappings),
+				Integer.MAX_VALUE, cache, statistics);
+
+		List<String> positions = positions(stream);
+
+		assertEquals(positions.get(0), positions.get(1));
+		assertEquals(1, statistics.get(VariantCache.HITS));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shouldRejectTheFoldingMode() {
+		Map<String, String> args = new HashMap<>();
+		args.put("mode", "fold");
+		new LemmaUmlautFilterFactory(args);
+	}
+
+	private List<String> fusedTerms(String lemma) throws Exception {
+		return terms(positions(fused(of(lemma), Integer.MAX_VALUE)));
+	}
+
+	private TokenStream fused(TokenStream input, int maxVariants) {
+		return new LemmaUmlautFilter(input, new AtomicReference<>(mappings), maxVariants,
+				new AtomicReference<VariantCache>(), statistics);
+	}
+
+	// LemmaNormalizingFilter followed by UmlautFilter, without duplicates
+	private List<String> stackedTerms(String lemma) throws Exception {
+		FilterStatistics ignored = new FilterStatistics(UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED,
+				UmlautFilter.CAPPED, UmlautFilter.DUPLICATES);
+		TokenStream lemmas = new LemmaNormalizingFilter(of(lemma), null, ignored);
+		TokenStream stacked = new UmlautFilter(lemmas, mappings, Integer.MAX_VALUE, null, ignored);
+		return new ArrayList<>(new LinkedHashSet<>(terms(positions(stacked))));
+	}
+
+	private List<String> terms(List<String> positions) {
+		List<String> terms = new ArrayList<>();
+		for (String position : positions) {
+			terms.addAll(Arrays.asList(position.split(" ")));
+		}
+		return terms;
+	}
+
+	private int count(String term, List<String> terms) {
+		int count = 0;
+		for (String t : terms) {
+			if (t.equals(term)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,274 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.solr.parser.ParseException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class LuceneQueryBuilderTest {
+
+	// the same terms in every field
+	private static final List<String> DICTIONARY = Arrays.asList("bis", "großimbis", "imbis", "imbisgast", "wirt");
+
+	private ParametersModifier modifier;
+
+	@Rule
+	public ExpectedException inTest = ExpectedException.none();
+
+	@Before
+	public void setUp() throws Exception {
+		modifier = new ParametersModifier("lemma^1000 zitat^50", "lemma_text,zitat_text");
+	}
+
+	@Test
+	public void shouldSearchPartOfWordAsTermPrefixAndInfix() throws Exception {
+		assertEquals(partOfWordImbisAsTerms(), build("imbis"));
+	}
+
+	@Test
+	public void shouldKeepTheTermsUpToTheTermLimit() throws Exception {
+		// großimbis, imbis, and imbisgast contain imbis
+		assertEquals(partOfWordImbisAsTerms(), build("imbis", 3));
+	}
+
+	@Test
+	public void shouldFallBackToWildcardsAboveTheTermLimit() throws Exception {
+		Query query = build("imbis", 2);
+
+		Query expected = new BooleanQuery.Builder()
+				.add(inQueryFields(term("lemma", "imbis"), term("zitat", "imbis")), Occur.SHOULD)
+				.add(inQueryFields(wildcard("lemma", "imbis*"), wildcard("zitat", "imbis*")), Occur.SHOULD)
+				.add(inQueryFields(wildcard("lemma", "*imbis*"), wildcard("zitat", "*imbis*")), Occur.SHOULD)
+				.add(new BooleanQuery.Builder().add(wildcard("artikel", "*imbis*"), Occur.SHOULD)
+						.add(wildcard("zitat", "*imbis*"), Occur.SHOULD).add(wildcard("sufo", "*imbis*"), Occur.SHOULD)
+						.build(), Occur.MUST)
+				.build();
+		assertEquals(expected, query);
+	}
+
+	@Test
+	public void shouldSearchWordBeginAsTermAndPrefix() throws Exception {
+		Query query = build("^imbis");
+
+		Query expected = new BooleanQuery.Builder()
+				.add(inQueryFields(term("lemma", "imbis"), term("zitat", "imbis")), Occur.SHOULD)
+				.add(inQueryFields(wildcard("lemma", "imbis*"), wildcard("zitat", "imbis*")), Occur.SHOULD)
+				.add(inArticle(wildcard("artikel", "imbis*"), wildcard("zitat", "imbis*")), Occur.MUST).build();
+		assertEquals(expected, query);
+	}
+
+	@Test
+	public void shouldSearchWordEndWithLeadingWildcard() throws Exception {
+		Query query = build("imbis$");
+
+		Query expected = new BooleanQuery.Builder()
+				.add(inQueryFields(wildcard("lemma", "*imbis"), wildcard("zitat", "*imbis")), Occur.SHOULD)
+				.add(inArticle(wildcard("artikel", "*imbis"), wildcard("zitat", "*imbis")), Occur.MUST).build();
+		assertEquals(expected, query);
+	}
+
+	@Test
+	public void shouldSearchPreciseWordAsTerm() throws Exception {
+		assertEquals(preciseImbis(), build("^imbis$"));
+	}
+
+	@Test
+	public void shouldSearchFuzzyTerm() throws Exception {
+		Query query = build("imbis~1");
+
+		Query expected = new BooleanQuery.Builder()
+				.add(inQueryFields(fuzzy("lemma", "imbis"), fuzzy("zitat", "imbis")), Occur.SHOULD)
+				.add(inArticle(fuzzy("artikel", "imbis"), fuzzy("zitat", "imbis")), Occur.MUST).build();
+		assertEquals(expected, query);
+	}
+
+	@Test
+	public void shouldExcludeSourcesWithNOT() throws Exception {
+		Query query = build("^imbis$ AND NOT ^gast$");
+
+		Query notGast = new BooleanQuery.Builder().add(new MatchAllDocsQuery(), Occur.MUST)
+				.add(build("^gast$"), Occur.MUST_NOT).build();
+		Query imbisAndNotGast = new BooleanQuery.Builder().add(preciseImbis(), Occur.MUST)
+				.add(notGast, Occur.MUST).build();
+		Query expected = new BooleanQuery.Builder().add(imbisAndNotGast, Occur.MUST)
+				.add(term("type", "quelle"), Occur.MUST_NOT).build();
+		assertEquals(expected, query);
+	}
+
+	@Test
+	public void shouldNotExcludeSourcesWithoutNOT() throws Exception {
+		Query query = build("^imbis$ AND ^gast$");
+
+		assertEquals(new BooleanQuery.Builder().add(preciseImbis(), Occur.MUST).add(build("^gast$"), Occur.MUST)
+				.build(), query);
+	}
+
+	@Test
+	public void shouldSearchPrefixedTermInItsFieldOnly() throws Exception {
+		assertEquals(new BoostQuery(term("lemma", "imbis"), 1000), build("lemma:^imbis$"));
+	}
+
+	@Test
+	public void shouldRejectPrefixedTermWithUnknownField() throws Exception {
+		inTest.expect(ParseException.class);
+		inTest.expectMessage("Suchfeld existiert nicht: wort");
+		build("wort:imbis");
+	}
+
+	@Test
+	public void shouldRejectTheSameQueriesAsTheHandler() throws Exception {
+		String[] queries = { "\"imbis* gast\"", "\"imbis* \"", "lemma:\"imbis* gast\"", "zitat:\"imbis* gast\"",
+				"wort:imbis", "lemma:imbis:gast", "imbis (gast" };
+		for (String query : queries) {
+			String handlerError = null;
+			try {
+				modifier.changeParamsForQuery(query);
+			} catch (ParseException e) {
+				handlerError = e.getMessage();
+			}
+			String builderError = null;
+			try {
+				build(query);
+			} catch (ParseException e) {
+				builderError = e.getMessage();
+			}
+			assertEquals(query, handlerError, builderError);
+		}
+	}
+
+	@Test
+	public void shouldRejectPrefixedComplexPhraseInCitationsLikeTheHandler() throws Exception {
+		inTest.expect(ParseException.class);
+		inTest.expectMessage("Phrasensuche mit * und ? ist in Zitaten nur als exakte Suche möglich.");
+		build("zitat:\"imbis* gast\"");
+	}
+
+	private Query partOfWordImbisAsTerms() {
+		List<String> prefixed = Arrays.asList("imbis", "imbisgast");
+		List<String> containing = Arrays.asList("großimbis", "imbis", "imbisgast");
+		return new BooleanQuery.Builder()
+				.add(inQueryFields(term("lemma", "imbis"), term("zitat", "imbis")), Occur.SHOULD)
+				.add(inQueryFields(terms("lemma", prefixed), terms("zitat", prefixed)), Occur.SHOULD)
+				.add(inQueryFields(terms("lemma", containing), terms("zitat", containing)), Occur.SHOULD)
+				.add(new BooleanQuery.Builder().add(terms("artikel", containing), Occur.SHOULD)
+						.add(terms("zitat", containing), Occur.SHOULD).add(terms("sufo", containing), Occur.SHOULD)
+						.build(), Occur.MUST)
+				.build();
+	}
+
+	private Query preciseImbis() {
+		return new BooleanQuery.Builder()
+				.add(inQueryFields(term("lemma", "imbis"), term("zitat", "imbis")), Occur.SHOULD)
+				.add(inArticle(term("artikel", "imbis"), term("zitat", "imbis")), Occur.MUST).build();
+	}
+
+	private Query build(String userQuery) throws ParseException {
+		return build(userQuery, FwbQParserPlugin.DEFAULT_MAX_EXPANDED_TERMS);
+	}
+
+	private Query build(String userQuery, int maxExpandedTerms) throws ParseException {
+		return new LuceneQueryBuilder(new FakeFieldQueries(), modifier.parse(userQuery), null, maxExpandedTerms)
+				.build();
+	}
+
+	private Query inQueryFields(Query inLemma, Query inZitat) {
+		List<Query> perField = new ArrayList<>();
+		perField.add(new BoostQuery(inLemma, 1000));
+		perField.add(new BoostQuery(inZitat, 50));
+		return new DisjunctionMaxQuery(perField, 0);
+	}
+
+	private Query inArticle(Query inArtikel, Query inZitat) {
+		return new BooleanQuery.Builder().add(inArtikel, Occur.SHOULD).add(inZitat, Occur.SHOULD).build();
+	}
+
+	private Query term(String field, String text) {
+		return new TermQuery(new org.apache.lucene.index.Term(field, text));
+	}
+
+	private Query wildcard(String field, String pattern) {
+		return new WildcardQuery(new org.apache.lucene.index.Term(field, pattern));
+	}
+
+	private Query fuzzy(String field, String text) {
+		return new FuzzyQuery(new org.apache.lucene.index.Term(field, text), 1);
+	}
+
+	private Query terms(String field, List<String> texts) {
+		List<BytesRef> terms = new ArrayList<>();
+		for (String text : texts) {
+			terms.add(new BytesRef(text));
+		}
+		return new TermInSetQuery(field, terms);
+	}
+
+	/**
+	 * Knows the fields of the qf and the article fields, and does not analyze anything.
+	 */
+	private static class FakeFieldQueries implements FieldQueries {
+		private final List<String> fields = Arrays.asList("lemma", "zitat", "artikel", "sufo", "type");
+
+		@Override
+		public void checkField(String field) throws ParseException {
+			if (!fields.contains(field)) {
+				throw new ParseException("Suchfeld existiert nicht: " + field);
+			}
+		}
+
+		@Override
+		public Query termQuery(String field, String text) throws ParseException {
+			checkField(field);
+			return new TermQuery(new org.apache.lucene.index.Term(field, text));
+		}
+
+		@Override
+		public Query phraseQuery(String field, String text) throws ParseException {
+			checkField(field);
+			return new TermQuery(new org.apache.lucene.index.Term(field, "\"" + text + "\""));
+		}
+
+		@Override
+		public Query complexPhraseQuery(String field, String escapedPhrase) throws ParseException {
+			return phraseQuery(field, escapedPhrase);
+		}
+
+		@Override
+		public BytesRef multiTerm(String field, String text) throws ParseException {
+			checkField(field);
+			return new BytesRef(text);
+		}
+
+		@Override
+		public BytesRefIterator terms(String field) throws IOException {
+			final Iterator<String> it = DICTIONARY.iterator();
+			return new BytesRefIterator() {
+				@Override
+				public BytesRef next() {
+					return it.hasNext() ? new BytesRef(it.next()) : null;
+				}
+			};
+		}
+	}
+
+}
@@ -408,4 +408,100 @@ public class ParametersModifierTest {
 		assertEquals("(imb imb* *imb* +(artikel:*imb* zitat:*imb* sufo:*imb*)) AND (is is* *is* +(artikel:*is* zitat:*is* sufo:*is*))", expanded);
 	}
 
+	@Test
+	public void shouldNotMixFacetQueriesOfTwoQueries() throws Exception {
+		modifier.changeParamsForQuery("lemma:imbis EXAKT");
+		facetQueries = modifier.changeParamsForQuery("lemma:bla").facetQueries;
+		assertEquals(1, facetQueries.size());
+		assertTrue(facetQueries.contains("lemma:*bla*"));
+	}
+
+	@Test
+	public void shouldBeCreatedWithoutQfAndRejectQueries() throws Exception {
+		modifier = new ParametersModifier(null, "lemma_text");
+
+		inTest.expect(ParseException.class);
+		inTest.expectMessage("Parameter qf fehlt");
+		modifier.changeParamsForQuery("imbis");
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void shouldNotLetCachedFacetQueriesBeChanged() throws Exception {
+		facetQueries = modifier.changeParamsForQuery("lemma:bla").facetQueries;
+		facetQueries.clear();
+	}
+
+	@Test
+	public void shouldKeepFieldsForNonExactQueryAfterExactQuery() throws Exception {
+		modifier.changeParamsForQuery("imbis EXAKT");
+		ParametersModifyingSearchHandler.ModifiedParameters modified = modifier.changeParamsForQuery("imbis");
+		assertEquals("lemma^1000 zitat^50 sufo^1", modified.qf);
+		assertEquals("zitat_text,artikel_text", modified.hlFl);
+	}
+
+	@Test
+	public void shouldGroupAndsBeforeOrAndNotInParens() throws Exception {
+		expanded = modifier.changeParamsForQuery("lemma:a lemma:b lemma:c OR NOT (lemma:d OR lemma:e)").q;
+		assertEquals("((lemma:(a a* *a*)^1000 AND lemma:(b b* *b*)^1000 AND lemma:(c c* *c*)^1000 ) ) OR "
+				+ "(NOT (lemma:(d d* *d*)^1000 OR lemma:(e e* *e*)^1000 ) ) -type:quelle", expanded);
+	}
+
+	@Test
+	public void shouldPutDoubleNotInParens() throws Exception {
+		expanded = modifier.changeParamsForQuery("NOT NOT lemma:a").q;
+		assertEquals("(NOT (NOT lemma:(a a* *a*)^1000 ) ) -type:quelle", expanded);
+	}
+
+	@Test
+	public void shouldReportWrongParensBeforeWrongOperators() throws Exception {
+		inTest.expect(ParseException.class);
+		inTest.expectMessage("Klammern sind nicht richtig gesetzt");
+		expanded = modifier.changeParamsForQuery("OR imbis (gast").q;
+	}
+
+	@Test
+	public void shouldSearchInfixesAsPrefixesInSuffixFields() throws Exception {
+		modifier = new ParametersModifier("lemma^1000", "lemma_text", "_suffix");
+		expanded = modifier.changeParamsForQuery("imbis").q;
+		assertEquals("(imbis imbis* _query_:\"{!edismax qf='lemma_suffix^1000'}imbis*\" "
+				+ "+(artikel_suffix:imbis* zitat_suffix:imbis* sufo_suffix:imbis*))", expanded);
+	}
+
+	@Test
+	public void shouldTakeTheBestSuffixFieldLikeForTheOtherAlternatives() throws Exception {
+		modifier = new ParametersModifier("lemma^1000 zitat^50", "lemma_text,zitat_text", "_suffix");
+		expanded = modifier.changeParamsForQuery("im-bis").q;
+		assertEquals("(im\\-bis im\\-bis* _query_:\"{!edismax qf='lemma_suffix^1000 zitat_suffix^50'}im\\\\-bis*\" "
+				+ "+(artikel_suffix:im\\-bis* zitat_suffix:im\\-bis* sufo_suffix:im\\-bis*))", expanded);
+	}
+
+	@Test
+	public void shouldSearchWordEndsAsTermsInSuffixFields() throws Exception {
+		modifier = new ParametersModifier("lemma^1000", "lemma_text", "_suffix");
+		expanded = modifier.changeParamsForQuery("lemma:imbis$ EXAKT").q;
+		assertEquals("lemma_exakt_suffix:imbis^1000", expanded);
+	}
+
+	@Test
+	public void shouldSearchPrefixedInfixInSuffixField() throws Exception {
+		modifier = new ParametersModifier("lemma^1000", "lemma_text", "_suffix");
+		expanded = modifier.changeParamsForQuery("lemma:imbis").q;
+		assertEquals("(lemma:imbis lemma:imbis* lemma_suffix:imbis*)^1000", expanded);
+	}
+
+	@Test
+	public void shouldSearchWordEndsAsPrefixesInReversedFields() throws Exception {
+		modifier = new ParametersModifier("lemma^1000", "lemma_text", null, "_reversed");
+		expanded = modifier.changeParamsForQuery("imbis$").q;
+		assertEquals("(_query_:\"{!edismax qf='lemma_reversed^1000'}sibmi*\" "
+				+ "+(artikel_reversed:sibmi* zitat_reversed:sibmi*))", expanded);
+	}
+
+	@Test
+	public void shouldPreferReversedFieldsForWordEnds() throws Exception {
+		modifier = new ParametersModifier("lemma^1000", "lemma_text", "_suffix", "_reversed");
+		expanded = modifier.changeParamsForQuery("lemma:imbis$ lemma:gast").q;
+		assertEquals("lemma_reversed:sibmi*^1000 AND (lemma:gast lemma:gast* lemma_suffix:gast*)^1000", expanded);
+	}
+
 }
@@ -0,0 +1,90 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.junit.Test;
+
+public class PartOfWordTermsTest {
+
+	private static final String[] TERMS = { "bis", "gast", "großimbis", "imbis", "imbisgast", "imbiß", "wirt" };
+
+	@Test
+	public void shouldSortTermsIntoTiersInOnePass() throws Exception {
+		PartOfWordTerms tiers = PartOfWordTerms.collect(iterator(TERMS), "imbis", Integer.MAX_VALUE);
+		assertEquals(Arrays.asList("imbis", "imbisgast"), strings(tiers.startingWith()));
+		assertEquals(Arrays.asList("großimbis", "imbis", "imbisgast"), strings(tiers.containing()));
+	}
+
+	@Test
+	public void shouldFindMultiByteChars() throws Exception {
+		PartOfWordTerms tiers = PartOfWordTerms.collect(iterator(TERMS), "ß", Integer.MAX_VALUE);
+		assertEquals(Arrays.asList("großimbis", "imbiß"), strings(tiers.containing()));
+		assertEquals(new ArrayList<String>(), strings(tiers.startingWith()));
+	}
+
+	@Test
+	public void shouldFindTheSameTiersInTheSuffixIndex() throws Exception {
+		TermSuffixIndex index = TermSuffixIndex.build(iterator(TERMS), Integer.MAX_VALUE);
+		for (String partOfWord : new String[] { "imbis", "bis", "ß", "t", "x" }) {
+			PartOfWordTerms scanned = PartOfWordTerms.collect(iterator(TERMS), partOfWord, Integer.MAX_VALUE);
+			PartOfWordTerms indexed = PartOfWordTerms.collect(index, partOfWord, Integer.MAX_VALUE);
+			assertEquals(strings(scanned.startingWith()), strings(indexed.startingWith()));
+			assertEquals(strings(scanned.containing()), strings(indexed.containing()));
+		}
+	}
+
+	@Test
+	public void shouldGiveUpAboveTheLimit() throws Exception {
+		assertNull(PartOfWordTerms.collect(iterator(TERMS), "imbis", 2));
+		assertNull(PartOfWordTerms.collect(TermSuffixIndex.build(iterator(TERMS), Integer.MAX_VALUE), "imbis", 2));
+	}
+
+	@Test
+	public void shouldCollectUpToTheLimit() throws Exception {
+		PartOfWordTerms tiers = PartOfWordTerms.collect(iterator(TERMS), "imbis", 3);
+		assertEquals(Arrays.asList("großimbis", "imbis", "imbisgast"), strings(tiers.containing()));
+		tiers = PartOfWordTerms.collect(TermSuffixIndex.build(iterator(TERMS), Integer.MAX_VALUE), "imbis", 3);
+		assertEquals(Arrays.asList("großimbis", "imbis", "imbisgast"), strings(tiers.containing()));
+	}
+
+	@Test
+	public void shouldFindNothingWithoutTerms() throws Exception {
+		PartOfWordTerms tiers = PartOfWordTerms.collect(BytesRefIterator.EMPTY, "imbis", Integer.MAX_VALUE);
+		assertTrue(tiers.containing().isEmpty());
+	}
+
+	private BytesRefIterator iterator(String... terms) {
+		final Iterator<String> it = Arrays.asList(terms).iterator();
+		// reuses the same BytesRef like a TermsEnum
+		final BytesRef reused = new BytesRef(new byte[64]);
+		return new BytesRefIterator() {
+			@Override
+			public BytesRef next() {
+				if (!it.hasNext()) {
+					return null;
+				}
+				BytesRef next = new BytesRef(it.next());
+				System.arraycopy(next.bytes, 0, reused.bytes, 0, next.length);
+				reused.length = next.length;
+				return reused;
+			}
+		};
+	}
+
+	private List<String> strings(List<BytesRef> terms) {
+		List<String> strings = new ArrayList<>();
+		for (BytesRef term : terms) {
+			strings.add(term.utf8ToString());
+		}
+		return strings;
+	}
+
+}
@@ -0,0 +1,50 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class ReusableTermSetTest {
+
+	private ReusableTermSet setSut = new ReusableTermSet();
+
+	@Test
+	public void shouldRejectSameTerm() {
+		assertTrue(add("bär"));
+		assertTrue(add("bar"));
+		assertFalse(add("bär"));
+		assertEquals(2, setSut.size());
+	}
+
+	@Test
+	public void shouldCompareOnlyGivenRange() {
+		char[] buffer = "xbärx".toCharArray();
+		assertTrue(setSut.add(buffer, 1, 3));
+		assertFalse(add("bär"));
+		assertTrue(add("bärx"));
+	}
+
+	@Test
+	public void shouldAcceptTermsAgainAfterClear() {
+		add("bär");
+		setSut.clear();
+		assertEquals(0, setSut.size());
+		assertTrue(add("bär"));
+	}
+
+	@Test
+	public void shouldGrow() {
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(add("term" + i));
+		}
+		for (int i = 0; i < 1000; i++) {
+			assertFalse(add("term" + i));
+		}
+		assertEquals(1000, setSut.size());
+	}
+
+	private boolean add(String term) {
+		return setSut.add(term.toCharArray(), 0, term.length());
+	}
+
+}
@@ -0,0 +1,46 @@
+package sub.fwb;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.analysis.util.ResourceLoader;
+
+/**
+ * Serves files from strings that can be changed or removed by the tests.
+ */
+final class StringResourceLoader implements ResourceLoader {
+
+	private final Map<String, String> files = new HashMap<>();
+
+	void put(String name, String content) {
+		files.put(name, content);
+	}
+
+	void remove(String name) {
+		files.remove(name);
+	}
+
+	@Override
+	public InputStream openResource(String resource) throws IOException {
+		String content = files.get(resource);
+		if (content == null) {
+			throw new IOException("Resource not found: " + resource);
+		}
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public <T> Class<? extends T> findClass(String cname, Class<T> expectedType) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public <T> T newInstance(String cname, Class<T> expectedType) {
+		throw new UnsupportedOperationException();
+	}
+
+}
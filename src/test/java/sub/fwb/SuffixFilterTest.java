@@ -0,0 +1,59 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.junit.Test;
+
+public class SuffixFilterTest {
+
+	private FilterStatistics statistics = new FilterStatistics(SuffixFilter.SUFFIXES, UmlautFilter.DUPLICATES,
+			UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED, UmlautFilter.CAPPED);
+
+	@Test
+	public void shouldAddAllSuffixesOnTheSamePosition() throws Exception {
+		TokenStream stream = new SuffixFilter(of("imbis", "gast"), statistics);
+
+		assertEquals(Arrays.asList("imbis mbis bis is s", "gast ast st t"), positions(stream));
+		assertEquals(7, statistics.get(SuffixFilter.SUFFIXES));
+	}
+
+	@Test
+	public void shouldEmitSharedSuffixesOfVariantsOnlyOnce() throws Exception {
+		UmlautMappings mappings = UmlautMappings.compile(Arrays.asList("ä:a,ae"));
+		TokenStream variants = new UmlautFilter(of("bär", "bar"), mappings, Integer.MAX_VALUE, null, statistics);
+		TokenStream stream = new SuffixFilter(variants, statistics);
+
+		// the suffix r of bär, bar, and baer only once, but again on the second position
+		assertEquals(Arrays.asList("bär är r bar ar baer aer er", "bar ar r"), positions(stream));
+		assertEquals(2, statistics.get(UmlautFilter.DUPLICATES));
+	}
+
+	@Test
+	public void shouldDropDuplicateVariantsOfTheInput() throws Exception {
+		TokenStream stream = new SuffixFilter(of("imbis bis imbis", "bis"), statistics);
+
+		assertEquals(Arrays.asList("imbis mbis bis is s", "bis is s"), positions(stream));
+		// bis and imbis themselves, and all their suffixes
+		assertEquals(8, statistics.get(UmlautFilter.DUPLICATES));
+	}
+
+	@Test
+	public void shouldNotSplitSurrogatePairs() throws Exception {
+		TokenStream stream = new SuffixFilter(of("a𝅧b"), statistics);
+
+		assertEquals(Arrays.asList("a𝅧b 𝅧b b"), positions(stream));
+	}
+
+	@Test
+	public void shouldStartAgainAfterReset() throws Exception {
+		SuffixFilter filter = new SuffixFilter(of("bis"), statistics);
+		positions(filter);
+
+		assertEquals(Arrays.asList("bis is s"), positions(filter));
+	}
+
+}
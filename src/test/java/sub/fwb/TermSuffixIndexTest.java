@@ -0,0 +1,104 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.junit.Test;
+
+public class TermSuffixIndexTest {
+
+	@Test
+	public void shouldFindTermsContainingInfix() throws Exception {
+		TermSuffixIndex index = build("bis", "gast", "imbis", "imbiss", "wirt");
+		assertEquals(Arrays.asList("bis", "imbis", "imbiss"), terms(index, index.termsContaining("bis")));
+		assertEquals(Arrays.asList("imbiss"), terms(index, index.termsContaining("ss")));
+		assertEquals(new ArrayList<String>(), terms(index, index.termsContaining("x")));
+	}
+
+	@Test
+	public void shouldFindTermsEndingWithSuffix() throws Exception {
+		TermSuffixIndex index = build("bis", "gast", "imbis", "imbiss", "wirt");
+		assertEquals(Arrays.asList("bis", "imbis"), terms(index, index.termsEndingWith("bis")));
+		assertEquals(Arrays.asList("imbis"), terms(index, index.termsEndingWith("imbis")));
+	}
+
+	@Test
+	public void shouldCountEachTermOnce() throws Exception {
+		TermSuffixIndex index = build("anana", "nan");
+		assertEquals(Arrays.asList("anana", "nan"), terms(index, index.termsContaining("an")));
+	}
+
+	@Test
+	public void shouldNotSplitSurrogatePairs() throws Exception {
+		TermSuffixIndex index = build("a𝅧b");
+		assertEquals(1, index.termsContaining("𝅧b").length);
+		assertEquals(0, index.termsContaining("\uDD67b").length);
+	}
+
+	@Test
+	public void shouldSkipTooManyChars() throws Exception {
+		assertNull(TermSuffixIndex.build(iterator("imbis", "gast"), 9));
+		assertNotNull(TermSuffixIndex.build(iterator("imbis", "gast"), 11));
+	}
+
+	@Test
+	public void shouldFindTheSameTermsAsAScan() throws Exception {
+		Random random = new Random(7);
+		List<String> all = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			StringBuilder term = new StringBuilder();
+			int length = 1 + random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				term.append("abcä".charAt(random.nextInt(4)));
+			}
+			all.add(term.toString());
+		}
+		TermSuffixIndex index = build(all.toArray(new String[0]));
+		for (String searched : new String[] { "a", "ab", "bä", "cca", "äää" }) {
+			List<String> containing = new ArrayList<>();
+			List<String> ending = new ArrayList<>();
+			for (String term : all) {
+				if (term.contains(searched)) {
+					containing.add(term);
+				}
+				if (term.endsWith(searched)) {
+					ending.add(term);
+				}
+			}
+			assertEquals(containing, terms(index, index.termsContaining(searched)));
+			assertEquals(ending, terms(index, index.termsEndingWith(searched)));
+		}
+	}
+
+	private TermSuffixIndex build(String... terms) throws IOException {
+		return TermSuffixIndex.build(iterator(terms), Integer.MAX_VALUE);
+	}
+
+	private BytesRefIterator iterator(String... terms) {
+		final Iterator<String> it = Arrays.asList(terms).iterator();
+		return new BytesRefIterator() {
+			@Override
+			public BytesRef next() {
+				return it.hasNext() ? new BytesRef(it.next().getBytes(StandardCharsets.UTF_8)) : null;
+			}
+		};
+	}
+
+	private List<String> terms(TermSuffixIndex index, int[] ordinals) {
+		List<String> terms = new ArrayList<>();
+		for (int ordinal : ordinals) {
+			terms.add(index.term(ordinal));
+		}
+		return terms;
+	}
+
+}
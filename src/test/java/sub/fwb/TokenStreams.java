@@ -0,0 +1,82 @@
+package sub.fwb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+
+/**
+ * Helpers for the filter tests. Each string stands for one position, the terms on the same position are separated
+ * by spaces, e. g. "bär bar baer".
+ */
+final class TokenStreams {
+
+	private TokenStreams() {
+	}
+
+	static TokenStream of(String... positions) {
+		List<String> terms = new ArrayList<>();
+		List<Integer> increments = new ArrayList<>();
+		for (String position : positions) {
+			String[] variants = position.split(" ");
+			for (int i = 0; i < variants.length; i++) {
+				terms.add(variants[i]);
+				increments.add(i == 0 ? 1 : 0);
+			}
+		}
+		return new FixedTokenStream(terms, increments);
+	}
+
+	static List<String> positions(TokenStream stream) throws IOException {
+		CharTermAttribute termAttr = stream.addAttribute(CharTermAttribute.class);
+		PositionIncrementAttribute posIncrAttr = stream.addAttribute(PositionIncrementAttribute.class);
+		List<String> positions = new ArrayList<>();
+		stream.reset();
+		while (stream.incrementToken()) {
+			if (posIncrAttr.getPositionIncrement() > 0 || positions.isEmpty()) {
+				positions.add(termAttr.toString());
+			} else {
+				int last = positions.size() - 1;
+				positions.set(last, positions.get(last) + " " + termAttr.toString());
+			}
+		}
+		stream.end();
+		stream.close();
+		return positions;
+	}
+
+	private static final class FixedTokenStream extends TokenStream {
+		private final CharTermAttribute termAttr = addAttribute(CharTermAttribute.class);
+		private final PositionIncrementAttribute posIncrAttr = addAttribute(PositionIncrementAttribute.class);
+		private final List<String> terms;
+		private final List<Integer> increments;
+		private int next = 0;
+
+		private FixedTokenStream(List<String> terms, List<Integer> increments) {
+			this.terms = terms;
+			this.increments = increments;
+		}
+
+		@Override
+		public boolean incrementToken() {
+			if (next == terms.size()) {
+				return false;
+			}
+			clearAttributes();
+			termAttr.append(terms.get(next));
+			posIncrAttr.setPositionIncrement(increments.get(next));
+			next++;
+			return true;
+		}
+
+		@Override
+		public void reset() throws IOException {
+			super.reset();
+			next = 0;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.junit.Before;
+import org.junit.Test;
+
+public class UmlautFilterFactoryTest {
+
+	private StringResourceLoader loader;
+	private UmlautFilterFactory factorySut;
+
+	@Before
+	public void setUp() throws Exception {
+		loader = new StringResourceLoader();
+		loader.put("umlaut_mappings.txt", "ä:a");
+		Map<String, String> args = new HashMap<>();
+		args.put("file", "umlaut_mappings.txt");
+		args.put("cache", "true");
+		factorySut = new UmlautFilterFactory(args);
+		factorySut.inform(loader);
+	}
+
+	@Test
+	public void shouldUseNewMappingsAfterReload() throws Exception {
+		loader.put("umlaut_mappings.txt", "ä:ae");
+
+		assertTrue(factorySut.reloadMappings());
+
+		assertEquals(Arrays.asList("bär baer"), positions(factorySut.create(of("bär"))));
+	}
+
+	@Test
+	public void shouldKeepOldMappingsInStreamUntilReset() throws Exception {
+		TokenStream stream = factorySut.create(of("bär", "bär"));
+		CharTermAttribute termAttr = stream.addAttribute(CharTermAttribute.class);
+		stream.reset();
+		assertTrue(stream.incrementToken());
+		assertEquals("bär", termAttr.toString());
+
+		loader.put("umlaut_mappings.txt", "ä:ae");
+		assertTrue(factorySut.reloadMappings());
+		List<String> rest = new ArrayList<>();
+		while (stream.incrementToken()) {
+			rest.add(termAttr.toString());
+		}
+		stream.end();
+		stream.close();
+
+		// the second bär comes from the old cache
+		assertEquals(Arrays.asList("bar", "bär", "bar"), rest);
+		assertEquals(Arrays.asList("bär baer", "bär baer"), positions(stream));
+	}
+
+	@Test
+	public void shouldKeepOldMappingsIfFileIsMissing() throws Exception {
+		loader.remove("umlaut_mappings.txt");
+		try {
+			factorySut.reloadMappings();
+			fail();
+		} catch (IOException e) {
+			// expected
+		}
+
+		assertEquals(Arrays.asList("bär bar"), positions(factorySut.create(of("bär"))));
+	}
+
+	@Test
+	public void shouldKeepOldMappingsIfFileIsInvalid() throws Exception {
+		loader.put("umlaut_mappings.txt", "ä:ae\nU+XYZ:");
+		try {
+			factorySut.reloadMappings();
+			fail();
+		} catch (NumberFormatException e) {
+			// expected
+		}
+
+		assertEquals(Arrays.asList("bär bar"), positions(factorySut.create(of("bär"))));
+	}
+
+	@Test
+	public void shouldNotReloadWithoutFile() throws Exception {
+		UmlautFilterFactory factory = new UmlautFilterFactory(new HashMap<String, String>());
+		factory.inform(loader);
+
+		assertFalse(factory.reloadMappings());
+	}
+
+}
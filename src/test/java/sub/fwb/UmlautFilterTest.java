@@ -0,0 +1,96 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class UmlautFilterTest {
+
+	private UmlautMappings mappings;
+	private FilterStatistics statistics;
+
+	@Before
+	public void setUp() throws Exception {
+		mappings = UmlautMappings.compile(Arrays.asList("ä:a", "ß:ss", "ö:o,oe", "u:v", "d:t", "sz:s,ß", "U+0364:",
+				"sch:sh", "U+0075U+0364:ü", "U+1D167:"));
+		statistics = new FilterStatistics(UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED, UmlautFilter.CAPPED,
+				UmlautFilter.DUPLICATES);
+	}
+
+	@Test
+	public void shouldEmitTheVariantsOfTheWordMapper() throws Exception {
+		UmlautWordMapper mapper = new UmlautWordMapper(mappings);
+		for (String word : new String[] { "gedöns", "fusz", "muͤd", "läß", "schöd", "dusz\uD834\uDD67ä" }) {
+			List<String> expected = mapper.createMappings(word);
+
+			assertEquals(word, expected, variants(word, Integer.MAX_VALUE));
+		}
+		assertEquals(6, statistics.get(UmlautFilter.EXPANDED));
+		assertEquals(0, statistics.get(UmlautFilter.DUPLICATES));
+	}
+
+	@Test
+	public void shouldSkipDuplicatesOfTheWordMapper() throws Exception {
+		mappings = UmlautMappings.compile(Arrays.asList("ä:a,ae", "e:"));
+		List<String> expected = new UmlautWordMapper(mappings).createMappings("bäer");
+
+		List<String> variants = variants("bäer", Integer.MAX_VALUE);
+
+		assertEquals(new ArrayList<>(new LinkedHashSet<>(expected)), variants);
+		assertEquals(expected.size() - variants.size(), statistics.get(UmlautFilter.DUPLICATES));
+		assertTrue(statistics.get(UmlautFilter.DUPLICATES) > 0);
+	}
+
+	@Test
+	public void shouldStopAtMaxVariants() throws Exception {
+		List<String> expected = new UmlautWordMapper(mappings).createMappings("gedöns");
+
+		assertEquals(expected.subList(0, 4), variants("gedöns", 4));
+		assertEquals(1, statistics.get(UmlautFilter.CAPPED));
+		assertEquals(1, statistics.get(UmlautFilter.EXPANDED));
+	}
+
+	@Test
+	public void shouldPassThroughWordsWithoutSources() throws Exception {
+		List<String> positions = positions(new UmlautFilter(of("wirt", "bär"), mappings, 10, null, statistics));
+
+		assertEquals(Arrays.asList("wirt", "bär bar"), positions);
+		assertEquals(1, statistics.get(UmlautFilter.PASSED_THROUGH));
+		assertEquals(1, statistics.get(UmlautFilter.EXPANDED));
+		assertEquals(0, statistics.get(UmlautFilter.CAPPED));
+	}
+
+	@Test(timeout = 10000)
+	public void shouldCapWordsWithMoreVariantsThanALongCanCount() throws Exception {
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			word.append('ö');
+		}
+		UmlautVariants umlautVariants = new UmlautVariants();
+		umlautVariants.findMatches(mappings, word);
+		// 3^50 is more than Long.MAX_VALUE
+		assertEquals(Long.MAX_VALUE, umlautVariants.count());
+
+		List<String> variants = variants(word.toString(), 5);
+
+		assertEquals(word.toString(), variants.get(0));
+		assertEquals(word.substring(1) + "o", variants.get(1));
+		assertEquals(word.substring(1) + "oe", variants.get(2));
+		assertEquals(5, new LinkedHashSet<>(variants).size());
+		assertEquals(1, statistics.get(UmlautFilter.CAPPED));
+	}
+
+	private List<String> variants(String word, int maxVariants) throws Exception {
+		List<String> positions = positions(new UmlautFilter(of(word), mappings, maxVariants, null, statistics));
+		assertEquals(1, positions.size());
+		return Arrays.asList(positions.get(0).split(" "));
+	}
+
+}
@@ -0,0 +1,88 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class UmlautFoldingFilterTest {
+
+	private FilterStatistics statistics = new FilterStatistics(UmlautFilter.PASSED_THROUGH,
+			UmlautFoldingFilter.FOLDED);
+
+	@Test
+	public void shouldFoldSourcesToTheFirstReplacement() throws Exception {
+		UmlautMappings mappings = UmlautMappings.compileFolding(Arrays.asList("ä:a,ae", "ß:ss"));
+
+		List<String> folded = fold(mappings, false, "bär", "straße", "mäßig");
+
+		assertEquals(Arrays.asList("bar", "strasse", "massig"), folded);
+	}
+
+	@Test
+	public void shouldNotChangeWordsWithoutSources() throws Exception {
+		UmlautMappings mappings = UmlautMappings.compileFolding(Arrays.asList("ä:a,ae", "ß:ss"));
+
+		List<String> folded = fold(mappings, false, "bar", "baer", "strasse");
+
+		assertEquals(Arrays.asList("bar", "baer", "strasse"), folded);
+		assertEquals(0, statistics.get(UmlautFoldingFilter.FOLDED));
+		assertEquals(3, statistics.get(UmlautFilter.PASSED_THROUGH));
+	}
+
+	@Test
+	public void shouldKeepGroupsWithEmptyReplacementApart() throws Exception {
+		UmlautMappings mappings = UmlautMappings.compileFolding(Arrays.asList("U+0365:", "ä:a,"));
+
+		List<String> folded = fold(mappings, false, "huͥs", "bär", "bar", "hus");
+
+		assertEquals(Arrays.asList("hus", "bar", "bar", "hus"), folded);
+	}
+
+	@Test
+	public void shouldFindTheSameWordsAsTheExpandingMode() throws Exception {
+		List<String> lines = Arrays.asList("ä:a", "ö:o", "ß:ss", "U+0365:", "U+0075U+0364:ü");
+		UmlautMappings expanding = UmlautMappings.compile(lines);
+		UmlautMappings folding = UmlautMappings.compileFolding(lines);
+		String[] words = { "bär", "bar", "baer", "bärär", "barär", "barar", "hölz", "holz", "straße", "strasse",
+				"strase", "huͥs", "hus", "uͤbel", "übel", "ubel", "mäßig", "massig", "maßig", "masig" };
+
+		for (String searched : words) {
+			for (String indexed : words) {
+				// both analyzers use the same filter
+				boolean foundExpanded = !Collections.disjoint(expand(expanding, searched), expand(expanding, indexed));
+				boolean foundFolded = fold(folding, false, searched).equals(fold(folding, false, indexed));
+				assertEquals(searched + " in " + indexed, foundExpanded, foundFolded);
+			}
+		}
+	}
+
+	@Test
+	public void shouldKeepOriginalOnSamePosition() throws Exception {
+		UmlautMappings mappings = UmlautMappings.compileFolding(Arrays.asList("ä:a,ae"));
+
+		List<String> folded = fold(mappings, true, "bär", "wirt");
+
+		assertEquals(Arrays.asList("bär bar", "wirt"), folded);
+		assertEquals(1, statistics.get(UmlautFoldingFilter.FOLDED));
+		assertEquals(1, statistics.get(UmlautFilter.PASSED_THROUGH));
+	}
+
+	private List<String> fold(UmlautMappings mappings, boolean preserveOriginal, String... words) throws Exception {
+		return positions(new UmlautFoldingFilter(of(words), mappings, preserveOriginal, statistics));
+	}
+
+	private Set<String> expand(UmlautMappings mappings, String word) throws Exception {
+		FilterStatistics ignored = new FilterStatistics(UmlautFilter.PASSED_THROUGH, UmlautFilter.EXPANDED,
+				UmlautFilter.CAPPED, UmlautFilter.DUPLICATES);
+		String variants = positions(new UmlautFilter(of(word), mappings, Integer.MAX_VALUE, null, ignored)).get(0);
+		return new HashSet<>(Arrays.asList(variants.split(" ")));
+	}
+
+}
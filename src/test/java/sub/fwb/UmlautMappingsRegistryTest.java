@@ -0,0 +1,38 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class UmlautMappingsRegistryTest {
+
+	private List<String> lines = Arrays.asList("ä:a,ae", "ß:ss");
+
+	@Test
+	public void shouldShareMappingsOfSameFile() {
+		UmlautMappings mappings1 = UmlautMappingsRegistry.getMappings("mappings.txt", lines);
+		UmlautMappings mappings2 = UmlautMappingsRegistry.getMappings("mappings.txt", Arrays.asList("ä:a,ae", "ß:ss"));
+
+		assertSame(mappings1, mappings2);
+	}
+
+	@Test
+	public void shouldCompileChangedFileAgain() {
+		UmlautMappings mappings1 = UmlautMappingsRegistry.getMappings("mappings.txt", lines);
+		UmlautMappings mappings2 = UmlautMappingsRegistry.getMappings("mappings.txt", Arrays.asList("ä:a", "ß:ss"));
+
+		assertNotSame(mappings1, mappings2);
+	}
+
+	@Test
+	public void shouldNotShareMappingsOfDifferentFiles() {
+		UmlautMappings mappings1 = UmlautMappingsRegistry.getMappings("mappings.txt", lines);
+		UmlautMappings mappings2 = UmlautMappingsRegistry.getMappings("other_mappings.txt", lines);
+
+		assertNotSame(mappings1, mappings2);
+	}
+
+}
@@ -0,0 +1,73 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+import static sub.fwb.TokenStreams.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.lucene.analysis.core.WhitespaceTokenizerFactory;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+import org.apache.solr.analysis.TokenizerChain;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.TextField;
+import org.junit.Test;
+
+public class UmlautMappingsReloadHandlerTest {
+
+	private StringResourceLoader loader = new StringResourceLoader();
+
+	@Test
+	public void shouldReloadAndReportAllUmlautFactories() throws Exception {
+		loader.put("umlaut_mappings.txt", "ä:a");
+		loader.put("query_mappings.txt", "ö:o");
+		UmlautFilterFactory indexFactory = factory("umlaut_mappings.txt");
+		UmlautFilterFactory queryFactory = factory("query_mappings.txt");
+		TextField text = new TextField();
+		text.setIndexAnalyzer(chain(indexFactory));
+		text.setQueryAnalyzer(chain(queryFactory));
+		Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+		fieldTypes.put("text", text);
+		// without analyzers
+		fieldTypes.put("string", new TextField());
+
+		loader.put("umlaut_mappings.txt", "ä:ae");
+		loader.put("query_mappings.txt", "ö:oe");
+		NamedList<Object> reloaded = new UmlautMappingsReloadHandler().reload(fieldTypes);
+
+		assertEquals(2, reloaded.size());
+		assertEquals("umlaut_mappings.txt", reloaded.get("text/index"));
+		assertEquals("query_mappings.txt", reloaded.get("text/query"));
+		assertEquals(Arrays.asList("bär baer"), positions(indexFactory.create(of("bär"))));
+		assertEquals(Arrays.asList("hölz hoelz"), positions(queryFactory.create(of("hölz"))));
+	}
+
+	@Test
+	public void shouldNotReportFactoriesWithoutFile() throws Exception {
+		TextField text = new TextField();
+		text.setIndexAnalyzer(chain(factory(null)));
+		Map<String, FieldType> fieldTypes = new LinkedHashMap<>();
+		fieldTypes.put("text", text);
+
+		assertEquals(0, new UmlautMappingsReloadHandler().reload(fieldTypes).size());
+	}
+
+	private UmlautFilterFactory factory(String file) throws Exception {
+		Map<String, String> args = new HashMap<>();
+		if (file != null) {
+			args.put("file", file);
+		}
+		UmlautFilterFactory factory = new UmlautFilterFactory(args);
+		factory.inform(loader);
+		return factory;
+	}
+
+	private TokenizerChain chain(UmlautFilterFactory factory) {
+		return new TokenizerChain(new WhitespaceTokenizerFactory(new HashMap<String, String>()),
+				new TokenFilterFactory[] { factory });
+	}
+
+}
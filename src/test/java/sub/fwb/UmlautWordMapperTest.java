@@ -25,6 +25,9 @@ public class UmlautWordMapperTest {
 		alternativeChars.add("d:t");
 		alternativeChars.add("sz:s,ß");
 		alternativeChars.add("U+0364:"); // combining letter e
+		alternativeChars.add("sch:sh");
+		alternativeChars.add("U+0075U+0364:ü"); // u with combining letter e
+		alternativeChars.add("U+1D167:"); // combining tremolo, outside of the BMP
 
 		mapperSut = new UmlautWordMapper(alternativeChars);
 	}
@@ -131,4 +134,33 @@ public class UmlautWordMapperTest {
 		assertEquals("lass", mappings.get(3));
 	}
 
+	@Test
+	public void shouldReplaceThreeChars() {
+		mappings = mapperSut.createMappings("schaf");
+
+		assertEquals(2, mappings.size());
+		assertEquals("schaf", mappings.get(0));
+		assertEquals("shaf", mappings.get(1));
+	}
+
+	@Test
+	public void shouldPreferLongestSource() {
+		mappings = mapperSut.createMappings("muͤd");
+
+		assertEquals(4, mappings.size());
+		assertEquals("muͤd", mappings.get(0));
+		assertEquals("muͤt", mappings.get(1));
+		assertEquals("müd", mappings.get(2));
+		assertEquals("müt", mappings.get(3));
+	}
+
+	@Test
+	public void shouldRemoveSupplementaryCombiningLetter() {
+		mappings = mapperSut.createMappings("sv\uD834\uDD67len");
+
+		assertEquals(2, mappings.size());
+		assertEquals("sv\uD834\uDD67len", mappings.get(0));
+		assertEquals("svlen", mappings.get(1));
+	}
+
 }
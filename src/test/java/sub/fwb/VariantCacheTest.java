@@ -0,0 +1,59 @@
+package sub.fwb;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class VariantCacheTest {
+
+	private FilterStatistics statistics;
+	private VariantCache cacheSut;
+	private VariantCache.Key key = new VariantCache.Key();
+
+	@Before
+	public void setUp() throws Exception {
+		statistics = new FilterStatistics(VariantCache.HITS, VariantCache.MISSES, VariantCache.EVICTIONS);
+		cacheSut = new VariantCache(2, statistics);
+	}
+
+	@Test
+	public void shouldFindStoredVariants() {
+		char[][] variants = { "bär".toCharArray(), "bar".toCharArray() };
+		cacheSut.put(key.set("bär"), variants);
+
+		assertSame(variants, cacheSut.get(key.set("bär")));
+		assertNull(cacheSut.get(key.set("bar")));
+	}
+
+	@Test
+	public void shouldCopyKey() {
+		char[] buffer = "bär".toCharArray();
+		cacheSut.put(key.set(buffer, 0, 3), new char[][] { buffer });
+		key.set("xyz");
+
+		assertNotNull(cacheSut.get(new VariantCache.Key().set("bär")));
+	}
+
+	@Test
+	public void shouldEvictLeastRecentlyUsed() {
+		cacheSut.put(key.set("a"), new char[0][]);
+		cacheSut.put(key.set("b"), new char[0][]);
+		cacheSut.get(key.set("a"));
+		cacheSut.put(key.set("c"), new char[0][]);
+
+		assertEquals(2, cacheSut.size());
+		assertNotNull(cacheSut.get(key.set("a")));
+		assertNull(cacheSut.get(key.set("b")));
+		assertEquals(1, statistics.get(VariantCache.EVICTIONS));
+	}
+
+	@Test
+	public void shouldClear() {
+		cacheSut.put(key.set("a"), new char[0][]);
+		cacheSut.clear();
+
+		assertEquals(0, cacheSut.size());
+	}
+
+}
@@ -0,0 +1,127 @@
+package sub.fwb.parse;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the ParseUtil helpers with the regular expressions that they replaced. Run it with the test classpath,
+ * e. g. in the IDE, or with: mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=sub.fwb.parse.ParseUtilBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ParseUtilBenchmark {
+
+	private static final String FORMER_REGEX = "[‒&<>′`″”∣%«»‛⅓⅙⅔·⅕#˄˚{}¼¾©@‚°=½§…℔₰¶⸗˺˹„“+–!;›‹\\.,’·‘'%]+";
+
+	private final String[] queryPieces = { "imbis", "lemma:imbis", "„der", "imbis“", "(gast", "wirt)", "imbis-gast",
+			"^imbis$", "zitat:\"der", "imb*", "gast\"", "bedeutung:essen,", "[ge]wirt|schaft", "‚trinken‘." };
+
+	private final String[] snippets = { "/‹), der <em>imbis</em> des gastes /-[(,",
+			"; mhd. <em>imbīz</em>, ahd. <em>imbīz</em> ‹Essen, Mahlzeit›:",
+			"der wirt gab inen ein <em>imbis</em> von brot vnd wein", ". ] - <em>imbis</em> -" };
+
+	@Benchmark
+	public void removeSpecialChars(Blackhole hole) {
+		for (String piece : queryPieces) {
+			hole.consume(ParseUtil.removeSpecialChars(piece));
+		}
+	}
+
+	@Benchmark
+	public void removeSpecialCharsWithRegex(Blackhole hole) {
+		for (String piece : queryPieces) {
+			hole.consume(piece.replaceAll(FORMER_REGEX, ""));
+		}
+	}
+
+	@Benchmark
+	public void escapeSpecialChars(Blackhole hole) {
+		for (String piece : queryPieces) {
+			hole.consume(ParseUtil.escapeSpecialChars(piece));
+		}
+	}
+
+	@Benchmark
+	public void escapeSpecialCharsWithRegex(Blackhole hole) {
+		for (String piece : queryPieces) {
+			String escaped = piece.replaceAll("\\|", "\\\\|");
+			escaped = escaped.replaceAll("\\(", "\\\\(");
+			escaped = escaped.replaceAll("\\)", "\\\\)");
+			escaped = escaped.replaceAll("\\[", "\\\\[");
+			escaped = escaped.replaceAll("\\]", "\\\\]");
+			escaped = escaped.replaceAll("-", "\\\\-");
+			hole.consume(escaped.replaceAll(FORMER_REGEX, ""));
+		}
+	}
+
+	@Benchmark
+	public void trimSpecialChars(Blackhole hole) {
+		for (String snippet : snippets) {
+			hole.consume(ParseUtil.trimSpecialChars(snippet));
+		}
+	}
+
+	@Benchmark
+	public void trimSpecialCharsWithStartsWith(Blackhole hole) {
+		for (String snippet : snippets) {
+			hole.consume(formerTrim(snippet));
+		}
+	}
+
+	private static String formerTrim(String snippet) {
+		String[] front = { ",", ")", "/", "‹", ".", "]", "-", " ", ";", ":" };
+		String[] back = { "(", ",", "/", "[", "-", " ", ";", ":" };
+		frontwhile:
+		while (true) {
+			for (String f : front) {
+				if (snippet.startsWith(f)) {
+					snippet = snippet.substring(1);
+				}
+			}
+			for (String f : front) {
+				if (snippet.startsWith(f)) {
+					continue frontwhile;
+				}
+			}
+			break;
+		}
+		backwhile:
+		while (true) {
+			for (String b : back) {
+				if (snippet.endsWith(b)) {
+					snippet = snippet.substring(0, snippet.length() - 1);
+				}
+			}
+			for (String b : back) {
+				if (snippet.endsWith(b)) {
+					continue backwhile;
+				}
+			}
+			break;
+		}
+		return snippet;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(ParseUtilBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
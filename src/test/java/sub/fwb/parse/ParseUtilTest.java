@@ -8,6 +8,9 @@ import org.junit.Test;
 
 public class ParseUtilTest {
 
+	// the regex that removeSpecialChars used before the lookup table
+	private static final String FORMER_REGEX = "[‒&<>′`″”∣%«»‛⅓⅙⅔·⅕#˄˚{}¼¾©@‚°=½§…℔₰¶⸗˺˹„“+–!;›‹\\.,’·‘'%]+";
+
 	@Before
 	public void setUp() throws Exception {
 	}
@@ -24,4 +27,40 @@ public class ParseUtilTest {
 		assertEquals("test", changedSnippet);
 	}
 
+	@Test
+	public void shouldTrimNothingFromOrdinarySnippets() {
+		assertEquals("der imbis", ParseUtil.trimSpecialChars("der imbis"));
+		assertEquals("", ParseUtil.trimSpecialChars(" ,;: "));
+		assertEquals("", ParseUtil.trimSpecialChars(""));
+	}
+
+	@Test
+	public void shouldRemoveTheSameCharsAsTheFormerRegex() {
+		for (char c = 0; c < 0x3000; c++) {
+			String s = "a" + c + "b";
+			String expected = s.replaceAll(FORMER_REGEX, "");
+			assertEquals("char " + (int) c, expected, ParseUtil.removeSpecialChars(s));
+			assertEquals("char " + (int) c, expected.length() == 2, ParseUtil.isSpecialChar(c));
+		}
+	}
+
+	@Test
+	public void shouldEscapeAndRemoveInOnePass() {
+		String escaped = ParseUtil.escapeSpecialChars("„im(bis)|[ga]-st“.");
+		assertEquals("im\\(bis\\)\\|\\[ga\\]\\-st", escaped);
+	}
+
+	@Test
+	public void shouldReturnTheSameStringIfNothingIsRemoved() {
+		String s = "imbis";
+		assertSame(s, ParseUtil.removeSpecialChars(s));
+	}
+
+	@Test
+	public void shouldReverseWithEscapedCharsAndSurrogatePairs() {
+		assertEquals("tsag\\-sibmi", ParseUtil.reverseEscaped("imbis\\-gast"));
+		assertEquals("b\uD834\uDD67a", ParseUtil.reverseEscaped("a\uD834\uDD67b"));
+		assertEquals("", ParseUtil.reverseEscaped(""));
+	}
+
 }
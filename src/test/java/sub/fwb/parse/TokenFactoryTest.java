@@ -11,6 +11,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import sub.fwb.parse.tokens.Term;
+import sub.fwb.parse.tokens.TermKind;
+import sub.fwb.parse.tokens.TermPrefixed;
+
 public class TokenFactoryTest {
 
 	private TokenFactory factory;
@@ -462,6 +466,17 @@ public class TokenFactoryTest {
 		assertEquals("(imbis imbis* *imbis* +(artikel:*imbis* zitat:*imbis* sufo:*imbis*)) ", expanded);
 	}
 
+	@Test
+	public void shouldClassifyTermsByAnchorsAndFuzzyEnding() throws Exception {
+		Term wordEnd = (Term) factory.createOneToken("imbis$", "lemma^1000", false);
+		assertEquals(TermKind.WORD_END, wordEnd.getKind());
+		assertEquals("imbis", wordEnd.getSearchString());
+
+		TermPrefixed fuzzy = (TermPrefixed) factory.createOneToken("lemma:^imbis~1", "lemma^1000", false);
+		assertEquals(TermKind.FUZZY, fuzzy.getKind());
+		assertEquals("imbis~1", fuzzy.getSearchString());
+	}
+
 	private String expandOneTokenString(String ts) throws Exception {
 		return factory.createTokens(ts, "lemma^1000 def^70 zitat^50", false).get(0).getModifiedQuery();
 	}